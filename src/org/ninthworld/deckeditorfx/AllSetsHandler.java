@@ -0,0 +1,218 @@
+package org.ninthworld.deckeditorfx;
+
+import org.json.simple.parser.ContentHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * Streaming handler for AllSets.json. Fills SetData and CardData straight from the
+ * parser events without building the JSONObject tree.
+ *
+ * Depth of the enclosing containers:
+ *   1 = root object, 2 = set object, 3 = cards array, 4 = card object, 5 = array field of a card
+ */
+class AllSetsHandler implements ContentHandler {
+
+    private LinkedHashMap<String, SetData> setsByCode;
+    private HashMap<String, ArrayList<CardData>> cardsByCode;
+
+    private int depth;
+    private String currentSetCode, setField, cardField;
+
+    private SetData setData;
+    private ArrayList<CardData> setCards;
+    private CardData cardData;
+    private ArrayList<String> arrayValues;
+
+    public AllSetsHandler(){
+        this.setsByCode = new LinkedHashMap<>();
+        this.cardsByCode = new HashMap<>();
+        this.depth = 0;
+    }
+
+    /**
+     * Handler for a document that is just the value of one set, as used when the sets are parsed separately.
+     */
+    public AllSetsHandler(String setCode){
+        this();
+        this.depth = 1;
+        this.currentSetCode = setCode;
+    }
+
+    /**
+     * Appends the parsed sets and cards in the same order as iterating the keySet of
+     * the JSONObject json-simple would have built, so both load paths give equal lists.
+     */
+    public void collect(ArrayList<SetData> sets, ArrayList<CardData> cards){
+        HashMap<String, SetData> order = new HashMap<>();
+        setsByCode.forEach(order::put);
+
+        for(String setCode : order.keySet()){
+            sets.add(order.get(setCode));
+            cards.addAll(cardsByCode.get(setCode));
+        }
+    }
+
+    @Override
+    public void startJSON() {
+    }
+
+    @Override
+    public void endJSON() {
+    }
+
+    @Override
+    public boolean startObject() {
+        depth++;
+        if(depth == 2){
+            setData = new SetData();
+            setData.setCode(currentSetCode);
+            setCards = new ArrayList<>();
+            setsByCode.put(currentSetCode, setData);
+            cardsByCode.put(currentSetCode, setCards);
+        }else if(depth == 4 && "cards".equals(setField)){
+            cardData = new CardData();
+            cardData.setSetCode(setData.getCode());
+            setCards.add(cardData);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObject() {
+        if(depth == 4){
+            cardData = null;
+        }
+        depth--;
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        if(depth == 1){
+            currentSetCode = key;
+        }else if(depth == 2){
+            setField = key;
+        }else if(depth == 4){
+            cardField = key;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        return true;
+    }
+
+    @Override
+    public boolean startArray() {
+        depth++;
+        if(depth == 5 && cardData != null){
+            arrayValues = new ArrayList<>();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endArray() {
+        if(depth == 5 && arrayValues != null){
+            setCardArray(cardField, arrayValues.toArray(new String[arrayValues.size()]));
+            arrayValues = null;
+        }
+        depth--;
+        return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) {
+        if(value == null){
+            return true;
+        }
+
+        if(depth == 2){
+            setSetValue(setField, value.toString());
+        }else if(depth == 4 && cardData != null){
+            setCardValue(cardField, value.toString());
+        }else if(depth == 5 && arrayValues != null){
+            arrayValues.add(value.toString());
+        }
+        return true;
+    }
+
+    private void setSetValue(String key, String value){
+        switch(key){
+            case "name":
+                setData.setName(value);
+                break;
+            case "releaseDate":
+                setData.setDate(value);
+                break;
+            case "type":
+                setData.setType(value);
+                break;
+            case "block":
+                setData.setBlock(value);
+                break;
+        }
+    }
+
+    private void setCardValue(String key, String value){
+        switch(key){
+            case "name":
+                cardData.setName(value);
+                break;
+            case "manaCost":
+                cardData.setManaCost(value);
+                break;
+            case "cmc":
+                cardData.setCmc((int) Double.parseDouble(value));
+                break;
+            case "type":
+                cardData.setType(value);
+                break;
+            case "rarity":
+                cardData.setRarity(value);
+                break;
+            case "text":
+                cardData.setText(value);
+                break;
+            case "power":
+                cardData.setPower(value);
+                break;
+            case "toughness":
+                cardData.setToughness(value);
+                break;
+            case "multiverseid":
+                cardData.setMultiverseId(value);
+                break;
+        }
+    }
+
+    private void setCardArray(String key, String[] values){
+        switch(key){
+            case "names":
+                cardData.setNames(values);
+                break;
+            case "colors":
+                cardData.setColors(values);
+                break;
+            case "colorIdentity":
+                cardData.setColorIdentity(values);
+                break;
+            case "supertypes":
+                cardData.setSupertypes(values);
+                break;
+            case "types":
+                cardData.setTypes(values);
+                break;
+            case "subtypes":
+                cardData.setSubtypes(values);
+                break;
+            case "variations":
+                cardData.setVariations(values);
+                break;
+        }
+    }
+}
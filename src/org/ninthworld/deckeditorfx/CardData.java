@@ -8,66 +8,74 @@ import java.util.Collections;
  */
 public class CardData {
 
-    private String setCode, name, manaCost, type, rarity, text, power, toughness, multiverseId;
-    private String[] names, colors, colorIdentity, supertypes, types, subtypes, variations;
+    private String name, manaCost, type, text, power, toughness, multiverseId;
+    private String[] names, variations;
+    private String joinedName;
+    private byte[] manaSymbols;
     private int cmc;
 
+    // Codes in CardDictionary
+    private int setCode, rarity, colors, colorIdentity, supertypes, types, subtypes;
+
     public CardData(){
-        this.setCode = "";
+        this.setCode = CardDictionary.encode("");
         this.name = "";
         this.manaCost = "";
         this.type = "";
-        this.rarity = "";
+        this.rarity = CardDictionary.encode("");
         this.text = "";
         this.power = "";
         this.toughness = "";
         this.multiverseId = "";
         this.names = null;
-        this.colors = null;
-        this.colorIdentity = null;
-        this.supertypes = null;
-        this.types = null;
-        this.subtypes = null;
+        this.colors = -1;
+        this.colorIdentity = -1;
+        this.supertypes = -1;
+        this.types = -1;
+        this.subtypes = -1;
         this.variations = null;
         this.cmc = 0;
     }
 
     public boolean hasVariations(){
-        return (this.variations != null && this.variations.length > 0);
+        return (this.getVariations() != null && this.getVariations().length > 0);
     }
 
     public int getVariationNum(){
         ArrayList<Integer> varis = new ArrayList<>();
-        for(String s : this.variations){
+        for(String s : this.getVariations()){
             varis.add(Integer.parseInt(s));
         }
-        varis.add(Integer.parseInt(this.multiverseId));
+        varis.add(Integer.parseInt(this.getMultiverseId()));
         Collections.sort(varis);
-        return varis.indexOf(Integer.parseInt(this.multiverseId)) + 1;
+        return varis.indexOf(Integer.parseInt(this.getMultiverseId())) + 1;
     }
 
     public String getSetCode() {
-        return setCode;
+        return CardDictionary.decodeString(setCode);
     }
 
     public void setSetCode(String setCode) {
-        this.setCode = setCode;
+        this.setCode = CardDictionary.encode(setCode);
     }
 
     public String getNameUnmodified(){
         return name;
     }
 
+    /**
+     * Split cards are named after their halves, e.g. "Fire // Ice". The joined name is built on first use and kept.
+     */
     public String getName() {
-        if(this.getNames() != null && this.getNames().length > 1){
-            String text = "";
-            for(int i=0; i<this.getNames().length; i++){
-                text += this.getNames()[i];
-                if(i < this.getNames().length-1){
-                    text += " // ";
-                }
-            }
-            return text;
+        if(joinedName == null){
+            joinedName = joinNames(getNames(), getNameUnmodified());
+        }
+        return joinedName;
+    }
+
+    static String joinNames(String[] names, String name){
+        if(names != null && names.length > 1){
+            return String.join(" // ", names);
         }else {
             return name;
         }
@@ -75,6 +83,7 @@ public class CardData {
 
     public void setName(String name) {
         this.name = name;
+        this.joinedName = null;
     }
 
     public String getManaCost() {
@@ -83,6 +92,17 @@ public class CardData {
 
     public void setManaCost(String manaCost) {
         this.manaCost = manaCost;
+        this.manaSymbols = ManaSymbols.parse(manaCost);
+    }
+
+    /**
+     * Symbol ids of the mana cost, see ManaSymbols. Parsed once and shared with other cards, must not be modified.
+     */
+    public byte[] getManaSymbols() {
+        if(manaSymbols == null){
+            manaSymbols = ManaSymbols.parse(getManaCost());
+        }
+        return manaSymbols;
     }
 
     public String getType() {
@@ -94,11 +114,11 @@ public class CardData {
     }
 
     public String getRarity() {
-        return rarity;
+        return CardDictionary.decodeString(rarity);
     }
 
     public void setRarity(String rarity) {
-        this.rarity = rarity;
+        this.rarity = CardDictionary.encode(rarity);
     }
 
     public String getText() {
@@ -126,43 +146,43 @@ public class CardData {
     }
 
     public String[] getSubtypes() {
-        return subtypes;
+        return CardDictionary.decodeArray(subtypes);
     }
 
     public void setSubtypes(String[] subtypes) {
-        this.subtypes = subtypes;
+        this.subtypes = CardDictionary.encode(subtypes);
     }
 
     public String[] getTypes() {
-        return types;
+        return CardDictionary.decodeArray(types);
     }
 
     public void setTypes(String[] types) {
-        this.types = types;
+        this.types = CardDictionary.encode(types);
     }
 
     public String[] getSupertypes() {
-        return supertypes;
+        return CardDictionary.decodeArray(supertypes);
     }
 
     public void setSupertypes(String[] supertypes) {
-        this.supertypes = supertypes;
+        this.supertypes = CardDictionary.encode(supertypes);
     }
 
     public String[] getColorIdentity() {
-        return colorIdentity;
+        return CardDictionary.decodeArray(colorIdentity);
     }
 
     public void setColorIdentity(String[] colorIdentity) {
-        this.colorIdentity = colorIdentity;
+        this.colorIdentity = CardDictionary.encode(colorIdentity);
     }
 
     public String[] getColors() {
-        return colors;
+        return CardDictionary.decodeArray(colors);
     }
 
     public void setColors(String[] colors) {
-        this.colors = colors;
+        this.colors = CardDictionary.encode(colors);
     }
 
     public String[] getNames() {
@@ -171,6 +191,7 @@ public class CardData {
 
     public void setNames(String[] names) {
         this.names = names;
+        this.joinedName = null;
     }
 
     public int getCmc() {
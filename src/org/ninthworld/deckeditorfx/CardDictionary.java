@@ -0,0 +1,87 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared symbol table for the categorical CardData fields (set code, rarity, colors, types, ...). Each distinct
+ * String and each distinct String[] is stored once and referred to by a small int code; -1 stands for null.
+ *
+ * Decoded arrays are shared by every card with the same value and must not be modified. Lookups of known values
+ * don't lock, so loaders running on several threads only contend when they add a new value.
+ */
+public class CardDictionary {
+
+    private static final ConcurrentHashMap<String, Integer> stringCodes = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<List<String>, Integer> arrayCodes = new ConcurrentHashMap<>();
+    private static volatile String[] strings = new String[64];
+    private static volatile String[][] arrays = new String[64][];
+    private static int stringCount = 0, arrayCount = 0;
+
+    public static int encode(String str){
+        if(str == null){
+            return -1;
+        }
+
+        Integer code = stringCodes.get(str);
+        return code != null ? code : add(str);
+    }
+
+    private static synchronized int add(String str){
+        Integer code = stringCodes.get(str);
+        if(code == null){
+            code = stringCount;
+            if(stringCount == strings.length){
+                strings = Arrays.copyOf(strings, stringCount * 2);
+            }
+            strings[stringCount++] = str;
+            stringCodes.put(str, code);
+        }
+        return code;
+    }
+
+    public static int encode(String[] array){
+        if(array == null){
+            return -1;
+        }
+
+        Integer code = arrayCodes.get(Arrays.asList(array));
+        return code != null ? code : add(array);
+    }
+
+    private static synchronized int add(String[] array){
+        Integer code = arrayCodes.get(Arrays.asList(array));
+        if(code == null){
+            String[] shared = new String[array.length];
+            for(int i=0; i<array.length; i++){
+                // encode may grow strings, so it has to run before the array is read
+                shared[i] = decodeString(encode(array[i]));
+            }
+
+            code = arrayCount;
+            if(arrayCount == arrays.length){
+                arrays = Arrays.copyOf(arrays, arrayCount * 2);
+            }
+            arrays[arrayCount++] = shared;
+            arrayCodes.put(Arrays.asList(shared), code);
+        }
+        return code;
+    }
+
+    public static String decodeString(int code){
+        return code < 0 ? null : strings[code];
+    }
+
+    public static String[] decodeArray(int code){
+        return code < 0 ? null : arrays[code];
+    }
+
+    public static synchronized int getStringCount() {
+        return stringCount;
+    }
+
+    public static synchronized int getArrayCount() {
+        return arrayCount;
+    }
+}
@@ -0,0 +1,77 @@
+package org.ninthworld.deckeditorfx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Card images from the image cache on disk: the hq image when there is one, else the lq image, which is downloaded
+ * from downloadUrl followed by the multiverse id when it is missing.
+ */
+public class CardImageFiles implements ImageSource {
+
+    public static final String GATHERER_URL = "http://gatherer.wizards.com/Handlers/Image.ashx?type=card&multiverseid=";
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private final File hqDir, lqDir;
+    private final String downloadUrl;
+
+    public CardImageFiles(File hqDir, File lqDir, String downloadUrl){
+        this.hqDir = hqDir;
+        this.lqDir = lqDir;
+        this.downloadUrl = downloadUrl;
+    }
+
+    @Override
+    public byte[] load(CardData card) throws IOException {
+        String fileName = card.getNameUnmodified().replaceAll("\\\"", "") + (card.hasVariations() ? card.getVariationNum() : "") + ".full.jpg";
+        File hqCard = new File(new File(hqDir, card.getSetCode()), fileName);
+        if(hqCard.exists()){
+            return Files.readAllBytes(hqCard.toPath());
+        }
+
+        File lqCard = new File(new File(lqDir, card.getSetCode()), fileName);
+        if(lqCard.exists()){
+            return Files.readAllBytes(lqCard.toPath());
+        }
+
+        byte[] data = download(card);
+
+        // Written to a temporary file of its own first, so neither a download that fails halfway nor two workers
+        // downloading the same card ever leave a broken image behind
+        lqCard.getParentFile().mkdirs();
+        Path tempFile = Files.createTempFile(lqCard.getParentFile().toPath(), lqCard.getName(), ".part");
+        try {
+            Files.write(tempFile, data);
+            if(!lqCard.exists()){
+                Files.move(tempFile, lqCard.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return data;
+    }
+
+    private byte[] download(CardData card) throws IOException {
+        URLConnection connection = new URL(downloadUrl + card.getMultiverseId()).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(InputStream in = connection.getInputStream()){
+            byte[] buf = new byte[8192];
+            int n;
+            while((n = in.read(buf)) != -1){
+                out.write(buf, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+}
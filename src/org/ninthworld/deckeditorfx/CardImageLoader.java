@@ -0,0 +1,109 @@
+package org.ninthworld.deckeditorfx;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Loads and decodes card images on a small pool of worker threads, so the FX thread never waits for the disk or the
+ * network. Only the latest request counts: like in SearchScheduler every request gets a generation number, and a
+ * result is only published if no newer request was made in the meantime. A new request drops the one before it if
+ * it hasn't started. One that has is left to finish loading, so a download still ends up in the image cache on disk,
+ * but it is not decoded. Workers are never interrupted, the file and channel reads would fail on an interrupt. A
+ * download that is stuck in a read keeps its thread, so the pool has more than one thread to keep the next request
+ * from waiting behind it.
+ *
+ * The image type is left to the Decoder, which keeps the loader free of JavaFX.
+ */
+public class CardImageLoader<T> {
+
+    public interface Decoder<T> {
+        /**
+         * Decodes an image to fit in width x height, called on a worker thread.
+         */
+        T decode(byte[] data, double width, double height) throws IOException;
+    }
+
+    private final ImageSource source;
+    private final Decoder<T> decoder;
+    private final ExecutorService executor;
+    private final Executor publisher;
+
+    private Future<?> pending;
+    private CardData pendingCard;
+    private double pendingWidth, pendingHeight;
+    private volatile long generation = 0;
+
+    /**
+     * Images are published through publisher, which must run them on the thread that makes the requests,
+     * e.g. Platform::runLater for the FX thread.
+     */
+    public CardImageLoader(ImageSource source, Decoder<T> decoder, int threads, Executor publisher){
+        this.source = source;
+        this.decoder = decoder;
+        this.publisher = publisher;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "card-image-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Must be called on the publishing thread, onLoaded is called there too unless a newer request was made first.
+     * Nothing is published when the card has no image or it fails to load. Asking again for the card that is
+     * already loading at the same size keeps that request.
+     */
+    public void request(CardData card, double width, double height, Consumer<T> onLoaded){
+        if(card == pendingCard && width == pendingWidth && height == pendingHeight && pending != null && !pending.isDone()){
+            return;
+        }
+        cancel();
+        long requestGeneration = generation;
+        pendingCard = card;
+        pendingWidth = width;
+        pendingHeight = height;
+        pending = executor.submit(() -> {
+            try {
+                byte[] data = source.load(card);
+                if(data == null || requestGeneration != generation){
+                    return;
+                }
+
+                T image = decoder.decode(data, width, height);
+                if(image == null){
+                    return;
+                }
+                publisher.execute(() -> {
+                    if(requestGeneration == generation){
+                        onLoaded.accept(image);
+                    }
+                });
+            } catch (IOException e) {
+                System.out.println("Could not load the image of " + card.getName() + ": " + e);
+            } catch (RuntimeException e) {
+                // Would otherwise be kept in the discarded future without a trace
+                System.out.println("Could not load the image of " + card.getName() + ":");
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Drops the pending request, for when the card it was for is no longer shown. Must be called on the publishing
+     * thread.
+     */
+    public void cancel(){
+        generation++;
+        if(pending != null){
+            pending.cancel(false);
+            pending = null;
+            pendingCard = null;
+        }
+    }
+}
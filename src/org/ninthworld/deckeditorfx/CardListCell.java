@@ -0,0 +1,113 @@
+package org.ninthworld.deckeditorfx;
+
+import javafx.geometry.Insets;
+import javafx.scene.Group;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.effect.BlendMode;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.TextAlignment;
+
+import java.util.HashMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Row of a card ListView: count for deck sections, type icon tinted by rarity, name and mana cost. A ListView only
+ * creates cells for the rows that are visible and reuses them while scrolling, so the nodes are built once per cell
+ * and updateItem only swaps the text and images.
+ */
+public class CardListCell<T> extends ListCell<T> {
+
+    private final HashMap<String, Image> symbols;
+    private final HashMap<String, Color> rarityColor;
+    private final ManaSymbolImages manaSymbolImages;
+    private final Function<T, CardData> cardOf;
+    private final ToIntFunction<T> countOf;
+
+    private final BorderPane row = new BorderPane();
+    private final Label countLabel = new Label();
+    private final Label nameLabel = new Label();
+    private final ImageView typeImageView = new ImageView();
+    private final Rectangle rarityRect = new Rectangle(0, 0, 15, 15);
+    private final HBox manaHBox = new HBox();
+
+    /**
+     * Cells for a list of cards.
+     */
+    public static CardListCell<CardData> forCards(HashMap<String, Image> symbols, HashMap<String, Color> rarityColor, ManaSymbolImages manaSymbolImages){
+        return new CardListCell<>(symbols, rarityColor, manaSymbolImages, cardData -> cardData, null);
+    }
+
+    /**
+     * Cells for a deck section, with the count in front of the name.
+     */
+    public static CardListCell<DeckEntry> forDeck(HashMap<String, Image> symbols, HashMap<String, Color> rarityColor, ManaSymbolImages manaSymbolImages){
+        return new CardListCell<>(symbols, rarityColor, manaSymbolImages, DeckEntry::getCard, DeckEntry::getCount);
+    }
+
+    private CardListCell(HashMap<String, Image> symbols, HashMap<String, Color> rarityColor, ManaSymbolImages manaSymbolImages,
+                         Function<T, CardData> cardOf, ToIntFunction<T> countOf){
+        this.symbols = symbols;
+        this.rarityColor = rarityColor;
+        this.manaSymbolImages = manaSymbolImages;
+        this.cardOf = cardOf;
+        this.countOf = countOf;
+
+        rarityRect.setBlendMode(BlendMode.ADD);
+        nameLabel.setGraphic(new Group(typeImageView, rarityRect));
+        if(countOf != null){
+            countLabel.setPadding(new Insets(0, 8, 0, 8));
+            countLabel.setMinWidth(48);
+            countLabel.setTextAlignment(TextAlignment.RIGHT);
+            BorderPane left = new BorderPane();
+            left.setLeft(countLabel);
+            left.setCenter(nameLabel);
+            row.setLeft(left);
+        }else{
+            row.setLeft(nameLabel);
+        }
+        row.setRight(manaHBox);
+    }
+
+    @Override
+    protected void updateItem(T item, boolean empty) {
+        super.updateItem(item, empty);
+        if(empty || item == null){
+            setGraphic(null);
+            return;
+        }
+
+        CardData cardData = cardOf.apply(item);
+        if(countOf != null){
+            countLabel.setText(Integer.toString(countOf.applyAsInt(item)));
+        }
+        nameLabel.setText(cardData.getName());
+
+        String[] types = cardData.getTypes();
+        typeImageView.setImage(types != null && types.length > 0 ? symbols.get(types[0]) : null);
+
+        Color color = rarityColor.get(cardData.getRarity());
+        rarityRect.setVisible(color != null);
+        if(color != null){
+            rarityRect.setFill(color);
+        }
+
+        // Mana symbol views are kept and reused for the next card
+        byte[] manaSymbols = cardData.getManaSymbols();
+        for(int i=0; i<manaSymbols.length; i++){
+            if(i == manaHBox.getChildren().size()){
+                manaHBox.getChildren().add(new ImageView());
+            }
+            ((ImageView) manaHBox.getChildren().get(i)).setImage(manaSymbolImages.get(manaSymbols[i]));
+        }
+        manaHBox.getChildren().remove(manaSymbols.length, manaHBox.getChildren().size());
+
+        setGraphic(row);
+    }
+}
@@ -0,0 +1,210 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Every SortOrder presorted once when the cards are loaded. Each order keeps a permutation of the card indices and
+ * the rank of every card in it, so ordering a result never compares cards: a large result is gathered by walking the
+ * permutation, a small one is sorted by rank. A page of a result only orders the cards up to the end of the page.
+ *
+ * Keys are packed into longs as (key, name rank) and sorted as primitives, which breaks ties by name.
+ */
+public class CardOrdering {
+
+    private static final String COLOR_ORDER = "WUBRG";
+    private static final String[] RARITY_ORDER = {"Mythic Rare", "Rare", "Uncommon", "Common", "Basic Land"};
+
+    private final List<CardData> cards;
+    private final int[][] permutations, ranks;
+
+    public CardOrdering(List<CardData> cards, List<SetData> sets){
+        this.cards = cards;
+        int count = cards.size();
+        SortOrder[] orders = SortOrder.values();
+        this.permutations = new int[orders.length][];
+        this.ranks = new int[orders.length][];
+
+        String[] names = new String[count];
+        Integer[] byName = new Integer[count];
+        for(int i=0; i<count; i++){
+            names[i] = cards.get(i).getName();
+            byName[i] = i;
+        }
+        Arrays.sort(byName, (index1, index2) -> names[index1].compareTo(names[index2]));
+        int[] nameOrder = new int[count];
+        for(int i=0; i<count; i++){
+            nameOrder[i] = byName[i];
+        }
+        setPermutation(SortOrder.NAME, nameOrder);
+
+        HashMap<String, Integer> setDates = new HashMap<>();
+        for(SetData setData : sets){
+            setDates.put(setData.getCode(), setData.getYear() * 10000 + setData.getMonth() * 100 + setData.getDay());
+        }
+
+        int[] nameRanks = ranks[SortOrder.NAME.ordinal()];
+        long[] keys = new long[count];
+        for(SortOrder order : orders){
+            if(order == SortOrder.NAME){
+                continue;
+            }
+            for(int i=0; i<count; i++){
+                keys[i] = ((long) key(order, cards.get(i), setDates) << 32) | nameRanks[i];
+            }
+            Arrays.sort(keys);
+            int[] permutation = new int[count];
+            for(int i=0; i<count; i++){
+                permutation[i] = nameOrder[(int) keys[i]];
+            }
+            setPermutation(order, permutation);
+        }
+    }
+
+    private void setPermutation(SortOrder order, int[] permutation){
+        int[] rank = new int[permutation.length];
+        for(int i=0; i<permutation.length; i++){
+            rank[permutation[i]] = i;
+        }
+        permutations[order.ordinal()] = permutation;
+        ranks[order.ordinal()] = rank;
+    }
+
+    /**
+     * Collation key of a card, ascending.
+     */
+    private static int key(SortOrder order, CardData cardData, HashMap<String, Integer> setDates){
+        switch(order){
+            case CMC:
+                return cardData.getCmc();
+            case COLOR:
+                // One color in WUBRG order, then multicolored by combination, colorless last
+                String[] colorIdentity = cardData.getColorIdentity();
+                int mask = 0, colorCount = 0;
+                if(colorIdentity != null){
+                    for(String color : colorIdentity){
+                        int c = COLOR_ORDER.indexOf(color);
+                        if(c >= 0 && (mask & (1 << c)) == 0){
+                            mask |= 1 << c;
+                            colorCount++;
+                        }
+                    }
+                }
+                if(colorCount == 0){
+                    return 64;
+                }
+                return colorCount == 1 ? Integer.numberOfTrailingZeros(mask) : 32 + mask;
+            case RARITY:
+                String rarity = cardData.getRarity();
+                for(int r=0; r<RARITY_ORDER.length; r++){
+                    if(RARITY_ORDER[r].equalsIgnoreCase(rarity)){
+                        return r;
+                    }
+                }
+                return RARITY_ORDER.length;
+            case SET_DATE:
+                // Newest first, sets without a date last
+                Integer date = setDates.get(cardData.getSetCode());
+                return date == null ? 0 : -date;
+            default:
+                return 0;
+        }
+    }
+
+    public CardData getCard(int index){
+        return cards.get(index);
+    }
+
+    /**
+     * Adds the cards of result to the list in the given order.
+     */
+    public void getCards(BitSet result, SortOrder order, ArrayList<CardData> list){
+        getCards(result, order, 0, Integer.MAX_VALUE, list);
+    }
+
+    /**
+     * Adds the cards at positions [offset, offset + limit) of result in the given order. Only the first offset + limit
+     * cards are ordered: the permutation is walked until the page is full when the result is dense enough, otherwise
+     * the lowest ranks are kept in a bounded heap.
+     */
+    public void getCards(BitSet result, SortOrder order, int offset, int limit, ArrayList<CardData> list){
+        int count = result.cardinality();
+        int end = (int) Math.min(count, (long) offset + limit);
+        if(offset >= end){
+            return;
+        }
+        list.ensureCapacity(list.size() + end - offset);
+
+        // The walk looks at about cardCount * end / count cards, the heap at every card of the result
+        long walkCost = (long) cards.size() * end / count;
+        long heapCost = (long) count * (33 - Integer.numberOfLeadingZeros(end));
+        if(walkCost <= heapCost){
+            int position = 0;
+            for(int i : permutations[order.ordinal()]){
+                if(result.get(i)){
+                    if(position >= offset){
+                        list.add(cards.get(i));
+                    }
+                    if(++position == end){
+                        break;
+                    }
+                }
+            }
+            return;
+        }
+
+        int[] rank = ranks[order.ordinal()];
+        long[] keys;
+        if(end == count){
+            keys = new long[count];
+            int k = 0;
+            for(int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)){
+                keys[k++] = ((long) rank[i] << 32) | i;
+            }
+        }else{
+            keys = lowest(result, rank, end);
+        }
+        Arrays.sort(keys);
+        for(int k=offset; k<end; k++){
+            list.add(cards.get((int) keys[k]));
+        }
+    }
+
+    /**
+     * The keys of the size cards of result with the lowest ranks, unsorted. A max heap on the key holds the lowest
+     * keys seen so far.
+     */
+    private static long[] lowest(BitSet result, int[] rank, int size){
+        long[] heap = new long[size];
+        int filled = 0;
+        for(int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)){
+            long key = ((long) rank[i] << 32) | i;
+            if(filled < size){
+                int node = filled++;
+                while(node > 0 && heap[(node - 1) / 2] < key){
+                    heap[node] = heap[(node - 1) / 2];
+                    node = (node - 1) / 2;
+                }
+                heap[node] = key;
+            }else if(key < heap[0]){
+                int node = 0;
+                while(node * 2 + 1 < size){
+                    int child = node * 2 + 1;
+                    if(child + 1 < size && heap[child + 1] > heap[child]){
+                        child++;
+                    }
+                    if(heap[child] <= key){
+                        break;
+                    }
+                    heap[node] = heap[child];
+                    node = child;
+                }
+                heap[node] = key;
+            }
+        }
+        return heap;
+    }
+}
@@ -0,0 +1,314 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Precomputed facet bitsets over a card list. Bit i of every set stands for cards.get(i), so a search is a few
+ * word-wise AND/OR operations, and the name is matched through a NameIndex on the cards that are left afterwards.
+ * The cards must be grouped by set in the order of the set list (see SetData.groupCardsBySet), a set is then only
+ * the range of its first and last card.
+ * Rules text searches go through a TextIndex instead of the NameIndex, or a RegexScan for a query between slashes.
+ * Name searches using the t:, c:, cmc, o:, r: or s: syntax are compiled by a QueryCompiler.
+ */
+public class CardSearchIndex {
+
+    public static final int COST_BUCKETS = 11;
+    public static final String[] COLORS = {"C", "G", "U", "R", "B", "W"};
+    public static final String[] RARITIES = {"Common", "Uncommon", "Rare", "Mythic Rare"};
+    public static final String[] TYPES = {"Instant", "Sorcery", "Creature", "Artifact", "Enchantment", "Planeswalker", "Land"};
+    public static final int REGEX_LIMIT = 5000;
+
+    private final List<CardData> cards;
+    private final String[] searchNames;
+    private final NameIndex nameIndex;
+    private final TextIndex textIndex;
+    private final QueryCompiler queryCompiler;
+
+    private final BitSet[] costBits, colorBits, rarityBits, typeBits;
+    private final BitSet multicoloredBits;
+    private final HashMap<String, BitSet> typeLineBits;
+    private final HashMap<String, Integer> setOrdinals;
+    private final int[] setStarts;
+    private final TreeMap<Integer, BitSet> cmcBits;
+    private volatile RegexScan lastRegexScan;
+
+    public CardSearchIndex(List<CardData> cards, List<SetData> sets){
+        this.cards = cards;
+        this.searchNames = new String[cards.size()];
+        this.costBits = newBitSets(COST_BUCKETS);
+        this.colorBits = newBitSets(COLORS.length);
+        this.rarityBits = newBitSets(RARITIES.length);
+        this.typeBits = newBitSets(TYPES.length);
+        this.multicoloredBits = new BitSet();
+        this.setOrdinals = new HashMap<>(sets.size() * 2);
+        this.setStarts = new int[sets.size() + 1];
+        for(int i=0; i<sets.size(); i++){
+            setOrdinals.put(sets.get(i).getCode().toLowerCase(), i);
+        }
+        this.typeLineBits = new HashMap<>();
+        this.cmcBits = new TreeMap<>();
+        ArrayList<String> typeLine = new ArrayList<>();
+        int setOrdinal = 0;
+
+        for(int i=0; i<cards.size(); i++){
+            CardData cardData = cards.get(i);
+            searchNames[i] = getSearchName(cardData).toLowerCase();
+
+            costBits[Math.min(cardData.getCmc(), COST_BUCKETS - 1)].set(i);
+            getBits(cmcBits, cardData.getCmc()).set(i);
+
+            String[] colorIdentity = cardData.getColorIdentity();
+            if(colorIdentity == null){
+                colorBits[0].set(i);
+            }else{
+                for(String color : colorIdentity){
+                    for(int c=0; c<COLORS.length; c++){
+                        if(COLORS[c].equals(color)){
+                            colorBits[c].set(i);
+                        }
+                    }
+                }
+                if(colorIdentity.length > 1){
+                    multicoloredBits.set(i);
+                }
+            }
+
+            String rarity = cardData.getRarity();
+            for(int r=0; r<RARITIES.length; r++){
+                if(rarity.equalsIgnoreCase(RARITIES[r])){
+                    rarityBits[r].set(i);
+                }
+            }
+            if(rarity.equalsIgnoreCase("Basic Land")){
+                rarityBits[0].set(i);
+            }
+
+            String[] types = cardData.getTypes();
+            if(types != null){
+                for(String type : types){
+                    for(int t=0; t<TYPES.length; t++){
+                        if(TYPES[t].equals(type)){
+                            typeBits[t].set(i);
+                        }
+                    }
+                }
+            }
+
+            typeLine.clear();
+            TextIndex.tokenize(cardData.getType(), typeLine);
+            for(String word : typeLine){
+                getBits(typeLineBits, word).set(i);
+            }
+
+            Integer ordinal = setOrdinals.get(cardData.getSetCode().toLowerCase());
+            if(ordinal == null || ordinal < setOrdinal){
+                throw new IllegalArgumentException("Cards are not grouped by set at " + cardData.getName());
+            }
+            for(; setOrdinal < ordinal; setOrdinal++){
+                setStarts[setOrdinal + 1] = i;
+            }
+        }
+        for(; setOrdinal < sets.size(); setOrdinal++){
+            setStarts[setOrdinal + 1] = cards.size();
+        }
+
+        this.nameIndex = new NameIndex(searchNames);
+        this.textIndex = new TextIndex(cards);
+        this.queryCompiler = new QueryCompiler(this);
+    }
+
+    /**
+     * Split cards are searched by all of their names separated by spaces.
+     */
+    public static String getSearchName(CardData cardData){
+        String[] names = cardData.getNames();
+        if(names != null && names.length > 1){
+            return String.join(" ", names);
+        }
+        return cardData.getName();
+    }
+
+    public BitSet search(SearchFilter filter){
+        BitSet result = searchFacets(filter);
+        if(filter.isRulesText()){
+            filterRules(filter.getRawText(), result);
+        }else{
+            filterText(filter.getText(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Cards matching every checkbox facet of the filter, the text is not looked at.
+     */
+    public BitSet searchFacets(SearchFilter filter){
+        BitSet result = new BitSet(cards.size());
+        BitSet sets = filter.getSets();
+        for(int s = sets.nextSetBit(0); s >= 0 && s < setStarts.length - 1; s = sets.nextSetBit(s + 1)){
+            result.set(setStarts[s], setStarts[s + 1]);
+        }
+
+        BitSet costs = new BitSet(cards.size());
+        for(int i=0; i<COST_BUCKETS; i++){
+            if(filter.isCostSelected(i)){
+                costs.or(costBits[i]);
+            }
+        }
+        result.and(costs);
+
+        for(int i=0; i<COLORS.length; i++){
+            if(!filter.isColorSelected(i)){
+                result.andNot(colorBits[i]);
+            }
+        }
+        if(filter.isMulticolored()){
+            result.and(multicoloredBits);
+        }
+
+        for(int i=0; i<RARITIES.length; i++){
+            if(!filter.isRaritySelected(i)){
+                result.andNot(rarityBits[i]);
+            }
+        }
+
+        for(int i=0; i<TYPES.length; i++){
+            if(!filter.isTypeSelected(i)){
+                result.andNot(typeBits[i]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Clears every bit of result whose card name does not contain text, which must already be lower case. A text in
+     * the query syntax is compiled and its cards are kept instead.
+     */
+    public void filterText(String text, BitSet result){
+        if(QueryCompiler.isQuery(text)){
+            queryCompiler.compile(text).filter(result);
+        }else{
+            nameIndex.filter(text, result);
+        }
+    }
+
+    /**
+     * Clears every bit of result whose card doesn't match the TextIndex query or the /regex/, an empty query keeps
+     * every card. A regex keeps at most REGEX_LIMIT cards.
+     */
+    public void filterRules(String query, BitSet result){
+        if(isRegex(query)){
+            try {
+                Pattern pattern = Pattern.compile(query.substring(1, query.length() - 1), Pattern.CASE_INSENSITIVE);
+                RegexScan scan = new RegexScan(cards, pattern, REGEX_LIMIT);
+                scan.filter(result);
+                lastRegexScan = scan;
+            } catch (PatternSyntaxException e) {
+                System.out.println("Invalid pattern: " + e.getDescription());
+                result.clear();
+            }
+        }else if(!query.trim().isEmpty()){
+            result.and(textIndex.search(query));
+        }
+    }
+
+    /**
+     * The scan of the last /regex/ search with its throughput stats, or null before the first one.
+     */
+    public RegexScan getLastRegexScan() {
+        return lastRegexScan;
+    }
+
+    public static boolean isRegex(String query){
+        return query.length() > 1 && query.startsWith("/") && query.endsWith("/");
+    }
+
+    public void getCards(BitSet result, ArrayList<CardData> list){
+        list.ensureCapacity(list.size() + result.cardinality());
+        for(int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)){
+            list.add(cards.get(i));
+        }
+    }
+
+    /**
+     * Whether the filter is a TextIndex search, whose results can be ordered by relevance.
+     */
+    public static boolean isRanked(SearchFilter filter){
+        return filter.isRulesText() && !filter.getText().trim().isEmpty() && !isRegex(filter.getRawText());
+    }
+
+    /**
+     * Indices of the cards of result, most relevant first, for a filter that isRanked.
+     */
+    public int[] rank(SearchFilter filter, BitSet result){
+        return textIndex.rank(filter.getRawText(), result);
+    }
+
+    int getCardCount(){
+        return cards.size();
+    }
+
+    BitSet getColorBits(int color){
+        return colorBits[color];
+    }
+
+    BitSet getMulticoloredBits(){
+        return multicoloredBits;
+    }
+
+    BitSet getRarityBits(int rarity){
+        return rarityBits[rarity];
+    }
+
+    /**
+     * A new set of the cards of the set, empty for an unknown code.
+     */
+    BitSet getSetBits(String setCode){
+        BitSet bits = new BitSet(cards.size());
+        Integer ordinal = setOrdinals.get(setCode);
+        if(ordinal != null){
+            bits.set(setStarts[ordinal], setStarts[ordinal + 1]);
+        }
+        return bits;
+    }
+
+    HashMap<String, BitSet> getTypeLineBits(){
+        return typeLineBits;
+    }
+
+    TreeMap<Integer, BitSet> getCmcBits(){
+        return cmcBits;
+    }
+
+    NameIndex getNameIndex(){
+        return nameIndex;
+    }
+
+    TextIndex getTextIndex(){
+        return textIndex;
+    }
+
+    private static <K> BitSet getBits(Map<K, BitSet> map, K key){
+        BitSet bits = map.get(key);
+        if(bits == null){
+            bits = new BitSet();
+            map.put(key, bits);
+        }
+        return bits;
+    }
+
+    private static BitSet[] newBitSets(int count){
+        BitSet[] bitSets = new BitSet[count];
+        for(int i=0; i<count; i++){
+            bitSets[i] = new BitSet();
+        }
+        return bitSets;
+    }
+}
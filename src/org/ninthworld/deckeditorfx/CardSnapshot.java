@@ -0,0 +1,185 @@
+package org.ninthworld.deckeditorfx;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Binary snapshot of the set and card tables parsed from AllSets.json, read back by CardStore.
+ *
+ * Every string is stored once in a shared string table and every String[] once in an array table, sets and cards
+ * are fixed size records of int references into those tables (-1 for null). Cards are stored in the order they
+ * were given, which is already grouped by set in the order of the sets (see SetData.groupCardsBySet). The source
+ * length and modification time are kept in the header so a snapshot of an older AllSets.json is never used.
+ *
+ * Layout:
+ *   header      MAGIC, VERSION, sourceLength, sourceModified, stringCount, arrayCount, arrayDataLength, setCount, cardCount
+ *   int[stringCount + 1]  byte offset of each string in the string data
+ *   int[arrayCount + 1]   offset of each array in the array data
+ *   int[arrayDataLength]  array data, string references
+ *   int[setCount * SET_RECORD]
+ *   int[cardCount * CARD_RECORD]
+ *   byte[]      string data, UTF-8
+ */
+public class CardSnapshot {
+
+    public static final int MAGIC = 0x44454B53;
+    public static final int VERSION = 2;
+
+    public static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 * 5;
+    public static final int SET_RECORD = 7;
+    public static final int CARD_RECORD = 17;
+
+    public static boolean isValid(ByteBuffer buffer, long sourceLength, long sourceModified){
+        return buffer.limit() >= HEADER_SIZE
+                && buffer.getInt(0) == MAGIC
+                && buffer.getInt(4) == VERSION
+                && buffer.getLong(8) == sourceLength
+                && buffer.getLong(16) == sourceModified;
+    }
+
+    /**
+     * Writes the snapshot to a temporary file first and moves it into place, so a reader never sees half a file.
+     */
+    public static void save(File file, long sourceLength, long sourceModified, List<SetData> sets, List<CardData> cards) throws IOException {
+        LinkedHashMap<String, Integer> strings = new LinkedHashMap<>();
+        LinkedHashMap<List<String>, Integer> arrays = new LinkedHashMap<>();
+
+        int[] setRecords = new int[sets.size() * SET_RECORD];
+        for(int i=0; i<sets.size(); i++){
+            SetData setData = sets.get(i);
+            int r = i * SET_RECORD;
+            setRecords[r] = stringRef(strings, setData.getName());
+            setRecords[r+1] = stringRef(strings, setData.getCode());
+            setRecords[r+2] = stringRef(strings, setData.getType());
+            setRecords[r+3] = stringRef(strings, setData.getBlock());
+            setRecords[r+4] = setData.getYear();
+            setRecords[r+5] = setData.getMonth();
+            setRecords[r+6] = setData.getDay();
+        }
+
+        int[] cardRecords = new int[cards.size() * CARD_RECORD];
+        for(int i=0; i<cards.size(); i++){
+            CardData cardData = cards.get(i);
+            int r = i * CARD_RECORD;
+            cardRecords[r] = stringRef(strings, cardData.getSetCode());
+            cardRecords[r+1] = stringRef(strings, cardData.getNameUnmodified());
+            cardRecords[r+2] = stringRef(strings, cardData.getManaCost());
+            cardRecords[r+3] = stringRef(strings, cardData.getType());
+            cardRecords[r+4] = stringRef(strings, cardData.getRarity());
+            cardRecords[r+5] = stringRef(strings, cardData.getText());
+            cardRecords[r+6] = stringRef(strings, cardData.getPower());
+            cardRecords[r+7] = stringRef(strings, cardData.getToughness());
+            cardRecords[r+8] = stringRef(strings, cardData.getMultiverseId());
+            cardRecords[r+9] = arrayRef(strings, arrays, cardData.getNames());
+            cardRecords[r+10] = arrayRef(strings, arrays, cardData.getColors());
+            cardRecords[r+11] = arrayRef(strings, arrays, cardData.getColorIdentity());
+            cardRecords[r+12] = arrayRef(strings, arrays, cardData.getSupertypes());
+            cardRecords[r+13] = arrayRef(strings, arrays, cardData.getTypes());
+            cardRecords[r+14] = arrayRef(strings, arrays, cardData.getSubtypes());
+            cardRecords[r+15] = arrayRef(strings, arrays, cardData.getVariations());
+            cardRecords[r+16] = cardData.getCmc();
+        }
+
+        ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+        int[] stringOffsets = new int[strings.size() + 1];
+        int s = 0;
+        for(String str : strings.keySet()){
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            stringData.write(bytes, 0, bytes.length);
+            stringOffsets[++s] = stringData.size();
+        }
+
+        int[] arrayOffsets = new int[arrays.size() + 1];
+        int arrayDataLength = 0;
+        int a = 0;
+        for(List<String> array : arrays.keySet()){
+            arrayDataLength += array.size();
+            arrayOffsets[++a] = arrayDataLength;
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File temp = File.createTempFile("snapshot", ".tmp", parent);
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceModified);
+            out.writeInt(strings.size());
+            out.writeInt(arrays.size());
+            out.writeInt(arrayDataLength);
+            out.writeInt(sets.size());
+            out.writeInt(cards.size());
+
+            writeInts(out, stringOffsets);
+            writeInts(out, arrayOffsets);
+            for(List<String> array : arrays.keySet()){
+                for(String str : array){
+                    out.writeInt(strings.get(str));
+                }
+            }
+            writeInts(out, setRecords);
+            writeInts(out, cardRecords);
+            stringData.writeTo(out);
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Regenerates the snapshot on a daemon thread. The lists must not be modified while it runs.
+     */
+    public static void saveInBackground(File file, long sourceLength, long sourceModified, List<SetData> sets, List<CardData> cards){
+        Thread thread = new Thread(() -> {
+            try {
+                save(file, sourceLength, sourceModified, sets, cards);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "snapshot-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static int stringRef(HashMap<String, Integer> strings, String str){
+        if(str == null){
+            return -1;
+        }
+        Integer ref = strings.get(str);
+        if(ref == null){
+            ref = strings.size();
+            strings.put(str, ref);
+        }
+        return ref;
+    }
+
+    private static int arrayRef(HashMap<String, Integer> strings, HashMap<List<String>, Integer> arrays, String[] array){
+        if(array == null){
+            return -1;
+        }
+        List<String> key = Arrays.asList(array);
+        Integer ref = arrays.get(key);
+        if(ref == null){
+            for(String str : array){
+                stringRef(strings, str);
+            }
+            ref = arrays.size();
+            arrays.put(key, ref);
+        }
+        return ref;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+        for(int i : ints){
+            out.writeInt(i);
+        }
+    }
+}
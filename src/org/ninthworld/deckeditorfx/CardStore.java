@@ -0,0 +1,195 @@
+package org.ninthworld.deckeditorfx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Read-only view of a card snapshot (see CardSnapshot) mapped into memory. Sets are read eagerly, cards are handed
+ * out as MappedCardData views that only keep their record index and decode fields from the mapped file on access.
+ */
+public class CardStore {
+
+    private static final int[] CARD_STRING_FIELDS = {0, 1, 2, 3, 4, 5, 6, 7, 8}, CARD_ARRAY_FIELDS = {9, 10, 11, 12, 13, 14, 15};
+    private static final int[] SET_STRING_FIELDS = {0, 1, 2, 3};
+
+    private ByteBuffer buffer;
+    private int stringCount, arrayCount, arrayDataLength, setCount, cardCount;
+    private int stringOffsetsPos, arrayOffsetsPos, arrayDataPos, setRecordsPos, cardRecordsPos, stringDataPos;
+
+    private CardStore(ByteBuffer buffer){
+        this.buffer = buffer;
+
+        this.stringCount = buffer.getInt(24);
+        this.arrayCount = buffer.getInt(28);
+        this.arrayDataLength = buffer.getInt(32);
+        this.setCount = buffer.getInt(36);
+        this.cardCount = buffer.getInt(40);
+
+        this.stringOffsetsPos = CardSnapshot.HEADER_SIZE;
+        this.arrayOffsetsPos = stringOffsetsPos + (stringCount + 1) * 4;
+        this.arrayDataPos = arrayOffsetsPos + (arrayCount + 1) * 4;
+        this.setRecordsPos = arrayDataPos + arrayDataLength * 4;
+        this.cardRecordsPos = setRecordsPos + setCount * CardSnapshot.SET_RECORD * 4;
+        this.stringDataPos = cardRecordsPos + cardCount * CardSnapshot.CARD_RECORD * 4;
+    }
+
+    /**
+     * Maps the snapshot, or returns null when it is missing, unreadable, truncated or was made from a different
+     * AllSets.json.
+     */
+    public static CardStore open(File file, long sourceLength, long sourceModified){
+        if(!file.isFile()){
+            return null;
+        }
+
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(!CardSnapshot.isValid(buffer, sourceLength, sourceModified)){
+                return null;
+            }
+            CardStore store = hasValidSize(buffer) ? new CardStore(buffer) : null;
+            if(store == null || !store.hasValidTables()){
+                throw new IOException("Card snapshot " + file + " is damaged, loading AllSets.json instead");
+            }
+            return store;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Whether the file is exactly as long as the tables in its header say, so no position computed from the header
+     * can overflow or point past the end.
+     */
+    private static boolean hasValidSize(ByteBuffer buffer){
+        long stringCount = buffer.getInt(24), arrayCount = buffer.getInt(28), arrayDataLength = buffer.getInt(32);
+        long setCount = buffer.getInt(36), cardCount = buffer.getInt(40);
+        if(stringCount < 0 || arrayCount < 0 || arrayDataLength < 0 || setCount < 0 || cardCount < 0){
+            return false;
+        }
+
+        long stringDataPos = CardSnapshot.HEADER_SIZE + (stringCount + 1 + arrayCount + 1 + arrayDataLength
+                + setCount * CardSnapshot.SET_RECORD + cardCount * CardSnapshot.CARD_RECORD) * 4;
+        if(stringDataPos > buffer.limit()){
+            return false;
+        }
+        // The last string offset is the length of the string data
+        int stringDataLength = buffer.getInt(CardSnapshot.HEADER_SIZE + (int) stringCount * 4);
+        return stringDataLength >= 0 && stringDataPos + stringDataLength == buffer.limit();
+    }
+
+    /**
+     * Whether the offsets are in order and inside their data, and every reference points into its table. This reads
+     * every int of the tables once, so a damaged file falls back to the JSON instead of failing later inside a getter.
+     */
+    private boolean hasValidTables(){
+        if(!isIncreasing(stringOffsetsPos, stringCount, buffer.limit() - stringDataPos)
+                || !isIncreasing(arrayOffsetsPos, arrayCount, arrayDataLength)
+                || buffer.getInt(arrayOffsetsPos + arrayCount * 4) != arrayDataLength){
+            return false;
+        }
+        for(int i=0; i<arrayDataLength; i++){
+            int ref = buffer.getInt(arrayDataPos + i * 4);
+            if(ref < 0 || ref >= stringCount){
+                return false;
+            }
+        }
+        return hasValidRefs(setRecordsPos, setCount, CardSnapshot.SET_RECORD, SET_STRING_FIELDS, stringCount)
+                && hasValidRefs(cardRecordsPos, cardCount, CardSnapshot.CARD_RECORD, CARD_STRING_FIELDS, stringCount)
+                && hasValidRefs(cardRecordsPos, cardCount, CardSnapshot.CARD_RECORD, CARD_ARRAY_FIELDS, arrayCount);
+    }
+
+    /**
+     * Whether the count + 1 offsets at pos start at 0, never decrease and end at most at limit.
+     */
+    private boolean isIncreasing(int pos, int count, int limit){
+        int previous = 0;
+        if(buffer.getInt(pos) != 0){
+            return false;
+        }
+        for(int i=1; i<=count; i++){
+            int offset = buffer.getInt(pos + i * 4);
+            if(offset < previous){
+                return false;
+            }
+            previous = offset;
+        }
+        return previous <= limit;
+    }
+
+    private boolean hasValidRefs(int pos, int count, int recordSize, int[] fields, int tableSize){
+        for(int i=0; i<count; i++){
+            for(int field : fields){
+                int ref = buffer.getInt(pos + (i * recordSize + field) * 4);
+                if(ref < -1 || ref >= tableSize){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public void loadSets(ArrayList<SetData> sets){
+        sets.ensureCapacity(sets.size() + setCount);
+        for(int i=0; i<setCount; i++){
+            int pos = setRecordsPos + i * CardSnapshot.SET_RECORD * 4;
+            SetData setData = new SetData();
+            setData.setOrdinal(sets.size());
+            setData.setName(getString(buffer.getInt(pos)));
+            setData.setCode(getString(buffer.getInt(pos + 4)));
+            setData.setType(getString(buffer.getInt(pos + 8)));
+            setData.setBlock(getString(buffer.getInt(pos + 12)));
+            setData.setDate(buffer.getInt(pos + 16), buffer.getInt(pos + 20), buffer.getInt(pos + 24));
+            sets.add(setData);
+        }
+    }
+
+    public void loadCards(ArrayList<CardData> cards){
+        cards.ensureCapacity(cards.size() + cardCount);
+        for(int i=0; i<cardCount; i++){
+            cards.add(new MappedCardData(this, i));
+        }
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    int getCardField(int index, int field){
+        return buffer.getInt(cardRecordsPos + (index * CardSnapshot.CARD_RECORD + field) * 4);
+    }
+
+    String getString(int ref){
+        if(ref < 0){
+            return null;
+        }
+
+        int start = buffer.getInt(stringOffsetsPos + ref * 4);
+        int end = buffer.getInt(stringOffsetsPos + (ref + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringDataPos + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    String[] getArray(int ref){
+        if(ref < 0){
+            return null;
+        }
+
+        int start = buffer.getInt(arrayOffsetsPos + ref * 4);
+        int end = buffer.getInt(arrayOffsetsPos + (ref + 1) * 4);
+        String[] array = new String[end - start];
+        for(int i=0; i<array.length; i++){
+            array[i] = getString(buffer.getInt(arrayDataPos + (start + i) * 4));
+        }
+        return array;
+    }
+}
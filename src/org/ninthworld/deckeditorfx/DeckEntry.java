@@ -0,0 +1,42 @@
+package org.ninthworld.deckeditorfx;
+
+/**
+ * A card of a deck section with its count. Immutable, so a changed count is a new entry that replaces the old one in
+ * the DeckSection.
+ */
+public class DeckEntry {
+
+    private final CardData card;
+    private final int count;
+
+    public DeckEntry(CardData card, int count){
+        this.card = card;
+        this.count = count;
+    }
+
+    public CardData getCard() {
+        return card;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof DeckEntry)){
+            return false;
+        }
+
+        DeckEntry entry = (DeckEntry) o;
+        return card == entry.card && count == entry.count;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(card) + count;
+    }
+}
@@ -0,0 +1,268 @@
+package org.ninthworld.deckeditorfx;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * The cards of a deck section sorted by name, as an ObservableList that a ListView can show directly. Every change
+ * fires one add, remove or set event at the position of the card, so the view only updates that row.
+ *
+ * The entries are kept in a treap ordered by the name the card had when it was added, with the insertion order
+ * breaking ties. Each node knows the size of its subtree and its parent, so adding or removing a card, the entry at a
+ * position and the position of a card all take O(log n).
+ */
+public class DeckSection extends ObservableListBase<DeckEntry> {
+
+    private static class Node {
+        private final String name;
+        private final long sequence;
+        private final int priority;
+        private DeckEntry entry;
+        private Node left, right, parent;
+        private int size = 1;
+
+        private Node(DeckEntry entry, long sequence, int priority){
+            this.name = entry.getCard().getName();
+            this.sequence = sequence;
+            this.priority = priority;
+            this.entry = entry;
+        }
+
+        private int compareTo(Node node){
+            int c = name.compareTo(node.name);
+            return c != 0 ? c : Long.compare(sequence, node.sequence);
+        }
+    }
+
+    private final HashMap<CardData, Node> nodes = new HashMap<>();
+    private final Random random = new Random();
+    private Node root;
+    private long sequence;
+    private int totalCount;
+
+    @Override
+    public DeckEntry get(int index){
+        if(index < 0 || index >= size()){
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+        }
+        Node node = root;
+        while(true){
+            int leftSize = size(node.left);
+            if(index < leftSize){
+                node = node.left;
+            }else if(index > leftSize){
+                index -= leftSize + 1;
+                node = node.right;
+            }else{
+                return node.entry;
+            }
+        }
+    }
+
+    @Override
+    public int size(){
+        return size(root);
+    }
+
+    @Override
+    public int indexOf(Object o){
+        if(!(o instanceof DeckEntry)){
+            return -1;
+        }
+        Node node = nodes.get(((DeckEntry) o).getCard());
+        return node != null && node.entry.equals(o) ? index(node) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o){
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o){
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Position of the card, or -1 when it is not in the section.
+     */
+    public int indexOfCard(CardData card){
+        Node node = nodes.get(card);
+        return node != null ? index(node) : -1;
+    }
+
+    public int getCount(CardData card){
+        Node node = nodes.get(card);
+        return node != null ? node.entry.getCount() : 0;
+    }
+
+    /**
+     * Number of cards in the section, counting every copy.
+     */
+    public int getTotalCount(){
+        return totalCount;
+    }
+
+    /**
+     * Adds count copies of the card.
+     */
+    public void add(CardData card, int count){
+        setCount(card, getCount(card) + count);
+    }
+
+    /**
+     * Removes up to count copies of the card and returns how many are left.
+     */
+    public int remove(CardData card, int count){
+        int left = Math.max(0, getCount(card) - count);
+        setCount(card, left);
+        return left;
+    }
+
+    /**
+     * Sets the number of copies of the card, a count of 0 removes it.
+     */
+    public void setCount(CardData card, int count){
+        Node node = nodes.get(card);
+        if(node == null && count <= 0){
+            return;
+        }
+
+        beginChange();
+        if(node == null){
+            node = new Node(new DeckEntry(card, count), sequence++, random.nextInt());
+            nodes.put(card, node);
+            insert(node);
+            totalCount += count;
+            int index = index(node);
+            nextAdd(index, index + 1);
+        }else if(count <= 0){
+            int index = index(node);
+            nodes.remove(card);
+            delete(node);
+            totalCount -= node.entry.getCount();
+            nextRemove(index, node.entry);
+        }else if(count != node.entry.getCount()){
+            DeckEntry old = node.entry;
+            node.entry = new DeckEntry(card, count);
+            totalCount += count - old.getCount();
+            nextSet(index(node), old);
+        }
+        endChange();
+    }
+
+    @Override
+    public void clear(){
+        if(root == null){
+            return;
+        }
+        ArrayList<DeckEntry> removed = new ArrayList<>(this);
+        nodes.clear();
+        root = null;
+        totalCount = 0;
+
+        beginChange();
+        nextRemove(0, removed);
+        endChange();
+    }
+
+    private static int size(Node node){
+        return node != null ? node.size : 0;
+    }
+
+    private static int index(Node node){
+        int index = size(node.left);
+        for(; node.parent != null; node = node.parent){
+            if(node == node.parent.right){
+                index += size(node.parent.left) + 1;
+            }
+        }
+        return index;
+    }
+
+    private void insert(Node node){
+        if(root == null){
+            root = node;
+            return;
+        }
+
+        Node parent = root;
+        while(true){
+            parent.size++;
+            Node next = node.compareTo(parent) < 0 ? parent.left : parent.right;
+            if(next == null){
+                break;
+            }
+            parent = next;
+        }
+        if(node.compareTo(parent) < 0){
+            parent.left = node;
+        }else{
+            parent.right = node;
+        }
+        node.parent = parent;
+
+        while(node.parent != null && node.priority > node.parent.priority){
+            rotateUp(node);
+        }
+    }
+
+    private void delete(Node node){
+        // Rotate the node down until it is a leaf, then unlink it
+        while(node.left != null || node.right != null){
+            if(node.right == null || (node.left != null && node.left.priority > node.right.priority)){
+                rotateUp(node.left);
+            }else{
+                rotateUp(node.right);
+            }
+        }
+        if(node.parent == null){
+            root = null;
+            return;
+        }
+        if(node == node.parent.left){
+            node.parent.left = null;
+        }else{
+            node.parent.right = null;
+        }
+        for(Node parent = node.parent; parent != null; parent = parent.parent){
+            parent.size--;
+        }
+        node.parent = null;
+    }
+
+    /**
+     * Rotates node above its parent, keeping the order and the subtree sizes.
+     */
+    private void rotateUp(Node node){
+        Node parent = node.parent;
+        Node grandparent = parent.parent;
+        if(node == parent.left){
+            parent.left = node.right;
+            if(node.right != null){
+                node.right.parent = parent;
+            }
+            node.right = parent;
+        }else{
+            parent.right = node.left;
+            if(node.left != null){
+                node.left.parent = parent;
+            }
+            node.left = parent;
+        }
+        parent.parent = node;
+        node.parent = grandparent;
+        if(grandparent == null){
+            root = node;
+        }else if(grandparent.left == parent){
+            grandparent.left = node;
+        }else{
+            grandparent.right = node;
+        }
+        node.size = parent.size;
+        parent.size = size(parent.left) + size(parent.right) + 1;
+    }
+}
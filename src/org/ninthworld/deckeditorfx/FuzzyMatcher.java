@@ -0,0 +1,228 @@
+package org.ninthworld.deckeditorfx;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Typo tolerant lookup of card names. Names are normalized (lower case, no accents, the \u00C6 ligature as ae, punctuation as spaces)
+ * and indexed by trigram. A query first counts the trigrams it shares with every name, and only the names sharing the
+ * most are compared by edit distance.
+ */
+public class FuzzyMatcher {
+
+    private static final int CANDIDATES = 32;
+
+    private final String[] names;
+    private final List<List<CardData>> printings;
+    private final HashMap<String, Integer> nameIds;
+    private final HashMap<Long, int[]> postings;
+
+    public FuzzyMatcher(List<CardData> cards){
+        this.nameIds = new HashMap<>();
+        this.printings = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        for(CardData cardData : cards){
+            String name = normalize(cardData.getName());
+            Integer id = nameIds.get(name);
+            if(id == null){
+                id = names.size();
+                nameIds.put(name, id);
+                names.add(name);
+                printings.add(new ArrayList<>(1));
+            }
+            printings.get(id).add(cardData);
+        }
+        this.names = names.toArray(new String[names.size()]);
+
+        HashMap<Long, IntList> building = new HashMap<>();
+        for(int id=0; id<this.names.length; id++){
+            String padded = pad(this.names[id]);
+            for(int j=0; j+3<=padded.length(); j++){
+                Long trigram = trigram(padded, j);
+                IntList list = building.get(trigram);
+                if(list == null){
+                    list = new IntList();
+                    building.put(trigram, list);
+                }
+                if(list.size == 0 || list.values[list.size - 1] != id){
+                    list.add(id);
+                }
+            }
+        }
+        this.postings = new HashMap<>(building.size() * 2);
+        building.forEach((trigram, list) -> postings.put(trigram, Arrays.copyOf(list.values, list.size)));
+    }
+
+    public static String normalize(String name){
+        String text = Normalizer.normalize(name.replace("\u00C6", "AE").replace("\u00E6", "ae"), Normalizer.Form.NFD).toLowerCase();
+        StringBuilder normalized = new StringBuilder(text.length());
+        for(int i=0; i<text.length(); i++){
+            char c = text.charAt(i);
+            if(Character.isLetterOrDigit(c)){
+                normalized.append(c);
+            }else if(Character.getType(c) != Character.NON_SPACING_MARK && c != '\'' && normalized.length() > 0
+                    && normalized.charAt(normalized.length() - 1) != ' '){
+                normalized.append(' ');
+            }
+        }
+        return normalized.toString().trim();
+    }
+
+    /**
+     * Padded so that the start of a name weighs more than the rest, a name of n characters has n + 1 trigrams.
+     */
+    private static String pad(String name){
+        return "  " + name + " ";
+    }
+
+    private static Long trigram(String str, int start){
+        return ((long) str.charAt(start) << 32) | ((long) str.charAt(start + 1) << 16) | str.charAt(start + 2);
+    }
+
+    /**
+     * The best match with its confidence, or null if no name shares a trigram with the query.
+     */
+    public Match findBest(String name){
+        List<Match> matches = find(name, 1);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * Up to k names closest to the query, best first. An exact match after normalization always comes first with
+     * confidence 1.
+     */
+    public List<Match> find(String name, int k){
+        String query = normalize(name);
+        ArrayList<Match> matches = new ArrayList<>();
+        if(query.isEmpty() || k <= 0){
+            return matches;
+        }
+
+        Integer exact = nameIds.get(query);
+        if(exact != null){
+            matches.add(new Match(exact, 0, 1));
+            if(k == 1){
+                return matches;
+            }
+        }
+
+        // Shared trigram counts, only for the names that share any
+        int[] counts = new int[names.length];
+        int[] touched = new int[names.length];
+        int touchedCount = 0;
+        String padded = pad(query);
+        int trigramCount = padded.length() - 2;
+        for(int j=0; j<trigramCount; j++){
+            int[] list = postings.get(trigram(padded, j));
+            if(list != null){
+                for(int id : list){
+                    if(counts[id]++ == 0){
+                        touched[touchedCount++] = id;
+                    }
+                }
+            }
+        }
+
+        // Keep the CANDIDATES names with the best Dice coefficient on trigrams
+        int candidateCount = Math.min(CANDIDATES, touchedCount);
+        int[] candidates = new int[candidateCount];
+        double[] dice = new double[candidateCount];
+        int filled = 0;
+        for(int t=0; t<touchedCount; t++){
+            int id = touched[t];
+            double score = 2.0 * counts[id] / (trigramCount + names[id].length() + 1);
+            if(filled < candidateCount || score > dice[filled - 1]){
+                int pos = filled < candidateCount ? filled++ : filled - 1;
+                while(pos > 0 && dice[pos - 1] < score){
+                    dice[pos] = dice[pos - 1];
+                    candidates[pos] = candidates[pos - 1];
+                    pos--;
+                }
+                dice[pos] = score;
+                candidates[pos] = id;
+            }
+        }
+
+        for(int c=0; c<filled; c++){
+            int id = candidates[c];
+            if(exact != null && id == exact){
+                continue;
+            }
+            int distance = distance(query, names[id]);
+            double confidence = 1 - (double) distance / Math.max(query.length(), names[id].length());
+            matches.add(new Match(id, distance, confidence));
+        }
+
+        matches.sort((match1, match2) -> Double.compare(match2.confidence, match1.confidence));
+        return matches.size() > k ? new ArrayList<>(matches.subList(0, k)) : matches;
+    }
+
+    /**
+     * Levenshtein distance with two rows.
+     */
+    private static int distance(String a, String b){
+        int[] previous = new int[b.length() + 1], current = new int[b.length() + 1];
+        for(int j=0; j<=b.length(); j++){
+            previous[j] = j;
+        }
+        for(int i=1; i<=a.length(); i++){
+            current[0] = i;
+            for(int j=1; j<=b.length(); j++){
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        private void add(int value){
+            if(size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    public class Match {
+        private final int id, distance;
+        private final double confidence;
+
+        private Match(int id, int distance, double confidence){
+            this.id = id;
+            this.distance = distance;
+            this.confidence = confidence;
+        }
+
+        /**
+         * Printing used when the set doesn't matter, the first one in card list order.
+         */
+        public CardData getCard() {
+            return printings.get(id).get(0);
+        }
+
+        public List<CardData> getPrintings() {
+            return printings.get(id);
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        /**
+         * 1 minus the edit distance relative to the longer of the two normalized names.
+         */
+        public double getConfidence() {
+            return confidence;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.ninthworld.deckeditorfx;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Least recently used images by key, like SearchCache. The size of an image comes from the weigher, e.g. width x
+ * height x 4 bytes for a decoded image, and the oldest images are dropped once the total goes over maxBytes.
+ *
+ * With softTier, dropped images are still held by soft references, which the garbage collector only clears when it
+ * runs short of memory. An image found there moves back into the cache. Not synchronized.
+ */
+public class ImageCache<K, V> {
+
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<K, SoftEntry<K, V>> softEntries;
+    private final ReferenceQueue<V> clearedQueue = new ReferenceQueue<>();
+    private long bytes = 0;
+    private long hits = 0, softHits = 0, misses = 0, evictions = 0;
+
+    public ImageCache(long maxBytes, ToLongFunction<V> weigher, boolean softTier){
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.softEntries = softTier ? new HashMap<>() : null;
+    }
+
+    /**
+     * The cached image for the key or null.
+     */
+    public V get(K key){
+        Entry<V> entry = entries.get(key);
+        if(entry != null){
+            hits++;
+            return entry.image;
+        }
+
+        if(softEntries != null){
+            expungeCleared();
+            SoftEntry<K, V> softEntry = softEntries.remove(key);
+            V image = softEntry != null ? softEntry.get() : null;
+            if(image != null){
+                softHits++;
+                put(key, image);
+                return image;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public void put(K key, V image){
+        long size = weigher.applyAsLong(image);
+        if(softEntries != null){
+            softEntries.remove(key);
+        }
+        if(size > maxBytes){
+            Entry<V> old = entries.remove(key);
+            if(old != null){
+                bytes -= old.size;
+            }
+            keepSoftly(key, image);
+            return;
+        }
+
+        Entry<V> old = entries.put(key, new Entry<>(image, size));
+        if(old != null){
+            bytes -= old.size;
+        }
+        bytes += size;
+
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while(bytes > maxBytes){
+            Map.Entry<K, Entry<V>> evicted = eldest.next();
+            bytes -= evicted.getValue().size;
+            eldest.remove();
+            evictions++;
+            keepSoftly(evicted.getKey(), evicted.getValue().image);
+        }
+    }
+
+    private void keepSoftly(K key, V image){
+        if(softEntries != null){
+            expungeCleared();
+            softEntries.put(key, new SoftEntry<>(key, image, clearedQueue));
+        }
+    }
+
+    /**
+     * Forgets the soft references the garbage collector has cleared.
+     */
+    private void expungeCleared(){
+        Reference<? extends V> cleared;
+        while((cleared = clearedQueue.poll()) != null){
+            SoftEntry<?, ?> softEntry = (SoftEntry<?, ?>) cleared;
+            if(softEntries.get(softEntry.key) == softEntry){
+                softEntries.remove(softEntry.key);
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Hits that were found in the soft tier, not counted in getHits.
+     */
+    public long getSoftHits() {
+        return softHits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRatio(){
+        long lookups = hits + softHits + misses;
+        return lookups > 0 ? (double) (hits + softHits) / lookups : 0;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Bytes of the images held strongly, the soft tier is not counted.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int size(){
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return "Image cache: " + entries.size() + " images, " + bytes / 1024 + " KB, " + hits + " hits, " + softHits + " soft hits, "
+                + misses + " misses, " + String.format("%.1f%% hit ratio, ", getHitRatio() * 100) + evictions + " evictions";
+    }
+
+    private static class Entry<V> {
+        private final V image;
+        private final long size;
+
+        private Entry(V image, long size){
+            this.image = image;
+            this.size = size;
+        }
+    }
+
+    private static class SoftEntry<K, V> extends SoftReference<V> {
+        private final K key;
+
+        private SoftEntry(K key, V image, ReferenceQueue<V> queue){
+            super(image, queue);
+            this.key = key;
+        }
+    }
+}
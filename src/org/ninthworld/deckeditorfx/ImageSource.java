@@ -0,0 +1,14 @@
+package org.ninthworld.deckeditorfx;
+
+import java.io.IOException;
+
+/**
+ * Where the CardImageLoader gets the encoded image of a card from.
+ */
+public interface ImageSource {
+
+    /**
+     * The encoded image of the card, or null when there is none. Called on a worker thread.
+     */
+    byte[] load(CardData card) throws IOException;
+}
@@ -0,0 +1,110 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Updates a list in place to match a new list, so that an ObservableList only fires events for what changed and a
+ * ListView keeps its selection and scroll position. Items are matched by a key that is unique within each list.
+ *
+ * The matched items whose old positions form the longest increasing run stay where they are, every other item is
+ * removed or inserted. Consecutive removes and inserts are grouped into one remove(from, to) or addAll(index, items),
+ * and a kept item that is no longer equal to its new value is replaced with set. This takes O(n log n) for n items.
+ */
+public class ListDiff {
+
+    /**
+     * Turns target into next and returns the number of list operations it took.
+     */
+    public static <T> int apply(List<T> target, List<T> next, Function<? super T, ?> key){
+        HashMap<Object, Integer> oldPositions = new HashMap<>(target.size() * 2);
+        for(int i=0; i<target.size(); i++){
+            oldPositions.put(key.apply(target.get(i)), i);
+        }
+
+        int[] matches = new int[next.size()];
+        for(int j=0; j<next.size(); j++){
+            Integer i = oldPositions.get(key.apply(next.get(j)));
+            matches[j] = i != null ? i : -1;
+        }
+
+        boolean[] keptOld = new boolean[target.size()];
+        boolean[] keptNew = new boolean[next.size()];
+        for(int j : longestIncreasing(matches)){
+            keptNew[j] = true;
+            keptOld[matches[j]] = true;
+        }
+
+        int operations = 0;
+
+        // Remove from the back so the positions in front stay valid
+        for(int i = target.size() - 1; i >= 0; i--){
+            if(!keptOld[i]){
+                int to = i + 1;
+                while(i > 0 && !keptOld[i - 1]){
+                    i--;
+                }
+                target.subList(i, to).clear();
+                operations++;
+            }
+        }
+
+        // What is left are the kept items in order, the others go in between
+        int position = 0;
+        for(int j=0; j<next.size(); j++){
+            if(keptNew[j]){
+                if(!Objects.equals(target.get(position), next.get(j))){
+                    target.set(position, next.get(j));
+                    operations++;
+                }
+                position++;
+            }else{
+                int from = j;
+                while(j + 1 < next.size() && !keptNew[j + 1]){
+                    j++;
+                }
+                target.addAll(position, next.subList(from, j + 1));
+                position += j + 1 - from;
+                operations++;
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Indices of a longest strictly increasing subsequence of the values that are not negative, by patience sorting.
+     */
+    private static int[] longestIncreasing(int[] values){
+        int[] tails = new int[values.length];
+        int[] previous = new int[values.length];
+        int length = 0;
+        for(int j=0; j<values.length; j++){
+            if(values[j] < 0){
+                continue;
+            }
+
+            int low = 0, high = length;
+            while(low < high){
+                int mid = (low + high) >>> 1;
+                if(values[tails[mid]] < values[j]){
+                    low = mid + 1;
+                }else{
+                    high = mid;
+                }
+            }
+            previous[j] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = j;
+            if(low == length){
+                length++;
+            }
+        }
+
+        int[] sequence = new int[length];
+        for(int k = length - 1, j = length > 0 ? tails[length - 1] : -1; k >= 0; k--, j = previous[j]){
+            sequence[k] = j;
+        }
+        return sequence;
+    }
+}
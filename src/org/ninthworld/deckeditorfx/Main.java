@@ -1,26 +1,26 @@
 package org.ninthworld.deckeditorfx;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
-import javafx.scene.Group;
+import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.chart.*;
 import javafx.scene.control.*;
-import javafx.scene.effect.BlendMode;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
-import javafx.scene.text.TextAlignment;
 import javafx.scene.web.WebView;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
@@ -39,37 +39,52 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Main extends Application {
 
     private HashMap<String, Color> rarityColor;
     private HashMap<String, Image> symbols;
+    private ManaSymbolImages manaSymbolImages;
 
     private ArrayList<SetData> allSets;
     private ArrayList<CardData> allCards;
+    private CardSearchIndex cardSearchIndex;
+    private CardOrdering cardOrdering;
+    private SearchSession searchSession;
+    private SearchScheduler searchScheduler;
+    private FuzzyMatcher fuzzyMatcher;
+    private NameCompleter nameCompleter;
+    private double importConfidence = 0.8, suggestionConfidence = 0.5;
+    private long searchDelay = 150, searchCacheBytes = 8 * 1024 * 1024, cardPreviewCacheBytes = 64 * 1024 * 1024;
 
     private ArrayList<String> expansionBlockOrder;
     private HashMap<String, ArrayList<SetData>> expansionSets;
     private ArrayList<SetData> coreSets, commanderSets;
 
-    private ArrayList<CheckBox> searchCostCB, searchManaCB, searchRarityCB, searchTypeCB;
-    private ArrayList<CardData> searchCardList;
+    private ArrayList<CheckBox> searchCostCB, searchManaCB, searchRarityCB, searchTypeCB, searchSetCB;
+    private SearchResult searchResult;
+    private int searchPageSize = 200;
+    private Label searchCountLabel;
+    private Button searchMoreButton;
 
-    private ListView searchListView;
+    private ListView<CardData> searchListView;
     private WebView cardInfoWebView;
     private ImageView cardPreview;
     private Image cardBack;
-    private HashMap<String, Image> cardPreviewCache;
+    private ImageCache<String, Image> cardPreviewCache;
+    private CardImageLoader<Image> cardImageLoader;
 
     private TextField searchTextBox;
+    private CheckBox searchRulesCheck;
+    private ComboBox<SortOrder> searchSortCombo;
+    private ContextMenu completionMenu;
 
-    private ArrayList<HashMap<CardData, Integer>> deckCardMap; // commanderCardList, mainboardCardList, sideboardCardList, maybeboardCardList;
-    private ArrayList<ListView> deckListView; // commanderListView, mainboardListView, sideboardListView, maybeboardListView;
+    private ArrayList<DeckSection> deckSections; // commander, mainboard, sideboard, maybeboard
+    private ArrayList<ListView<DeckEntry>> deckListView; // commanderListView, mainboardListView, sideboardListView, maybeboardListView;
     private TabPane deckTabPane;
 
     private Button centerPlusButton, centerMinusButton, centerAddButton, centerRemoveButton;
@@ -82,12 +97,19 @@ public class Main extends Application {
     private PieChart typePieChart, costManaPieChart;
 
     private File deckFile = null;
+    private ArrayList<CloseMatch> importCloseMatches = new ArrayList<>();
+    private ArrayList<String> importMissing = new ArrayList<>();
+    private File snapshotFile = new File("res/cache/AllSets.bin");
+
+    private static final boolean DEBUG = Boolean.getBoolean("deckeditorfx.debug");
+    private final Map<String, Long> startupTimes = Collections.synchronizedMap(new LinkedHashMap<>());
 
     private String titlePrefix = "MagicFX - Deck Editor - ";
     private boolean isSaved = true;
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        long startTime = System.nanoTime();
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/deckeditor.fxml"));
         loader.setController(new Main());
         Parent root = loader.load(); // FXMLLoader.load(getClass().getResource("deckeditorfx.fxml"));
@@ -110,7 +132,14 @@ public class Main extends Application {
         cardPreview.setImage(cardBack);
         cardPreview.fitWidthProperty().bind(((GridPane) cardPreview.getParent()).widthProperty());
         cardPreview.fitHeightProperty().bind(((GridPane) cardPreview.getParent()).heightProperty());
-        cardPreviewCache = new HashMap<>();
+        cardPreviewCache = new ImageCache<>(cardPreviewCacheBytes, image -> (long) image.getWidth() * (long) image.getHeight() * 4, true);
+        cardImageLoader = new CardImageLoader<>(
+                new CardImageFiles(new File("res/cache/hqcards"), new File("res/cache/lqcards"), CardImageFiles.GATHERER_URL),
+                (data, width, height) -> {
+                    Image image = new Image(new ByteArrayInputStream(data), width, height, true, true);
+                    return image.isError() ? null : image;
+                },
+                2, Platform::runLater);
 
         primaryStage.getScene().getStylesheets().add("/style.css");
         manaCurveChart = (StackedBarChart) scene.lookup("#manaCurveChart");
@@ -119,9 +148,110 @@ public class Main extends Application {
         typePieChart = (PieChart) scene.lookup("#typePieChart");
         costManaPieChart = (PieChart) scene.lookup("#costManaPieChart");
 
+        // Rarity Colors
+        rarityColor = new HashMap<>();
+        rarityColor.put("Common", Color.valueOf("#242021"));
+        rarityColor.put("Uncommon", Color.valueOf("#458aa0"));
+        rarityColor.put("Rare", Color.valueOf("#ab8d39"));
+        rarityColor.put("Mythic Rare", Color.valueOf("#cc5e33"));
+
+        // Deck Area
+        deckTabPane = (TabPane) scene.lookup("#deckTabPane");
+        deckTabPane.getSelectionModel().select(1);
+
+        deckListView = new ArrayList<>();
+        deckListView.add(lookup(scene, "#commanderListView"));
+        deckListView.add(lookup(scene, "#mainboardListView"));
+        deckListView.add(lookup(scene, "#sideboardListView"));
+        deckListView.add(lookup(scene, "#maybeboardListView"));
+
+        deckSections = new ArrayList<>();
+        for(ListView<DeckEntry> listView : deckListView){
+            DeckSection section = new DeckSection();
+            section.addListener((ListChangeListener<DeckEntry>) c -> updateDeckTab(listView, section));
+            listView.setItems(section);
+            deckSections.add(section);
+        }
+
+        // Main Controls
+        deckNameTextField = (TextField) scene.lookup("#deckNameTextField");
+        deckNameTextField.setText("Untitled");
+
+        primaryStage.setOnCloseRequest(e -> {
+            e.consume();
+            closeWindow(primaryStage);
+        });
+
+        // Menu Items
+        MenuBar menuBar = (MenuBar) scene.lookup("#menuBar");
+        menuBar.getMenus().get(0).getItems().get(0).setOnAction(e -> closeWindow(primaryStage));
+
+        // Loading Indicator
+        searchListView = lookup(scene, "#searchListView");
+        searchTextBox = (TextField) scene.lookup("#searchTextBox");
+        Node searchPanel = ((BorderPane) scene.lookup("#searchBorderPane")).getTop();
+        searchTextBox.setDisable(true);
+        searchPanel.setDisable(true);
+
+        Label loadingLabel = new Label("Loading cards...");
+        VBox loadingBox = new VBox(8, new ProgressIndicator(), loadingLabel);
+        loadingBox.setAlignment(Pos.CENTER);
+        searchListView.setPlaceholder(loadingBox);
+        logPhase("Show window", startTime);
+
+        // Cards are loaded in the background, the search panel is filled in once they are ready
+        Thread cardLoader = new Thread(() -> {
+            try {
+                loadCardData();
+                Platform.runLater(() -> {
+                    long phaseTime = System.nanoTime();
+                    initCardControls(scene, primaryStage);
+                    searchListView.setPlaceholder(null);
+                    searchTextBox.setDisable(false);
+                    searchPanel.setDisable(false);
+                    logPhase("Build search panel", phaseTime);
+                    logPhase("Startup", startTime);
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+                Platform.runLater(() -> loadingLabel.setText("Could not load card data: " + e.getMessage()));
+            }
+        }, "card-loader");
+        cardLoader.setDaemon(true);
+        cardLoader.start();
+    }
+
+    private void loadCardData() throws IOException, ParseException {
+        long phaseTime = System.nanoTime();
+
         // Load Set Data
-        SetData.loadAllSets(getClass().getResourceAsStream("/json/AllSets.json"), allSets = new ArrayList<SetData>(), allCards = new ArrayList<CardData>());
-        Collections.sort(allCards, (card1, card2) -> card1.getName().compareTo(card2.getName()));
+        allSets = new ArrayList<>();
+        allCards = new ArrayList<>();
+        URLConnection allSetsConnection = getClass().getResource("/json/AllSets.json").openConnection();
+        long allSetsLength = allSetsConnection.getContentLengthLong();
+        long allSetsModified = allSetsConnection.getLastModified();
+        CardStore cardStore = CardStore.open(snapshotFile, allSetsLength, allSetsModified);
+        if(cardStore != null) {
+            cardStore.loadSets(allSets);
+            cardStore.loadCards(allCards);
+        }else{
+            if(Runtime.getRuntime().availableProcessors() > 1) {
+                SetData.loadAllSetsParallel(allSetsConnection.getInputStream(), allSets, allCards);
+            }else{
+                SetData.loadAllSetsStreaming(allSetsConnection.getInputStream(), allSets, allCards);
+            }
+            SetData.groupCardsBySet(allSets, allCards);
+            CardSnapshot.saveInBackground(snapshotFile, allSetsLength, allSetsModified, allSets, allCards);
+        }
+        phaseTime = logPhase("Load card data", phaseTime);
+
+        cardSearchIndex = new CardSearchIndex(allCards, allSets);
+        searchSession = new SearchSession(cardSearchIndex, searchCacheBytes);
+        cardOrdering = new CardOrdering(allCards, allSets);
+        searchScheduler = new SearchScheduler(searchSession, cardSearchIndex, cardOrdering, Platform::runLater);
+        fuzzyMatcher = new FuzzyMatcher(allCards);
+        nameCompleter = new NameCompleter(allCards);
+        phaseTime = logPhase("Build search index", phaseTime);
 
         // Sort Expansion Sets
         expansionSets = new HashMap<>();
@@ -179,37 +309,20 @@ public class Main extends Application {
             }
             return -1;
         });
+        phaseTime = logPhase("Group sets", phaseTime);
 
         // Load All Symbols
         symbols = new HashMap<>();
         loadAllImages(symbols, "/symbols/");
+        manaSymbolImages = new ManaSymbolImages(symbols);
+        logPhase("Load symbols", phaseTime);
+    }
 
-        // Rarity Colors
-        rarityColor = new HashMap<>();
-        rarityColor.put("Common", Color.valueOf("#242021"));
-        rarityColor.put("Uncommon", Color.valueOf("#458aa0"));
-        rarityColor.put("Rare", Color.valueOf("#ab8d39"));
-        rarityColor.put("Mythic Rare", Color.valueOf("#cc5e33"));
-
-        // Deck Area
-        deckTabPane = (TabPane) scene.lookup("#deckTabPane");
-        deckTabPane.getSelectionModel().select(1);
-
-        deckListView = new ArrayList<>();
-        deckListView.add((ListView) scene.lookup("#commanderListView"));
-        deckListView.add((ListView) scene.lookup("#mainboardListView"));
-        deckListView.add((ListView) scene.lookup("#sideboardListView"));
-        deckListView.add((ListView) scene.lookup("#maybeboardListView"));
-
-        deckCardMap = new ArrayList<>();
-        deckCardMap.add(new HashMap<>());
-        deckCardMap.add(new HashMap<>());
-        deckCardMap.add(new HashMap<>());
-        deckCardMap.add(new HashMap<>());
-
+    private void initCardControls(Scene scene, Stage primaryStage){
         // Card Search
         // Sets
         VBox searchSetsVBox = (VBox) scene.lookup("#searchSetsVBox");
+        searchSetCB = new ArrayList<>();
 
         // Expansion Sets
         Label expansionsLabel = new Label("Expansion Sets");
@@ -229,8 +342,10 @@ public class Main extends Application {
                 CheckBox box = new CheckBox();
                 box.setText(setData.getName());
                 box.setPadding(new Insets(0, 0, 0, 0));
+                box.setUserData(setData.getOrdinal());
 
                 inner.getChildren().add(box);
+                searchSetCB.add(box);
             });
         });
 
@@ -247,8 +362,10 @@ public class Main extends Application {
         coreSets.forEach(setData->{
             CheckBox box = new CheckBox();
             box.setText(setData.getName());
+            box.setUserData(setData.getOrdinal());
 
             coreInner.getChildren().add(box);
+            searchSetCB.add(box);
         });
 
         // Commander Sets
@@ -264,8 +381,10 @@ public class Main extends Application {
         commanderSets.forEach(setData->{
             CheckBox box = new CheckBox();
             box.setText(setData.getName());
+            box.setUserData(setData.getOrdinal());
 
             commanderInner.getChildren().add(box);
+            searchSetCB.add(box);
         });
 
         CheckBox searchSetsSelectAllCheck = (CheckBox) scene.lookup("#searchSetsSelectAllCheck");
@@ -275,8 +394,7 @@ public class Main extends Application {
                 ((VBox) child).getChildren().forEach(childchild -> {
                     if(childchild instanceof CheckBox){
                         ((CheckBox) childchild).setOnAction(e -> {
-                            updateSearchCardList(searchCardList, scene);
-                            updateCardListView(searchListView, searchCardList);
+                            requestSearch(scene, 0);
                         });
                     }
                 });
@@ -297,8 +415,7 @@ public class Main extends Application {
                 }
             });
 
-            updateSearchCardList(searchCardList, scene);
-            updateCardListView(searchListView, searchCardList);
+            requestSearch(scene, 0);
         });
 
         CheckBox searchSetsLatestFiveCheck = (CheckBox) scene.lookup("#searchSetsLatestFiveCheck");
@@ -318,8 +435,7 @@ public class Main extends Application {
                 }
             }
 
-            updateSearchCardList(searchCardList, scene);
-            updateCardListView(searchListView, searchCardList);
+            requestSearch(scene, 0);
         });
 
         // Types
@@ -344,8 +460,7 @@ public class Main extends Application {
         ((VBox) searchTypeSelectAllCheck.getParent()).getChildren().forEach(child -> {
             if(child instanceof CheckBox){
                 ((CheckBox) child).setOnAction(e -> {
-                    updateSearchCardList(searchCardList, scene);
-                    updateCardListView(searchListView, searchCardList);
+                    requestSearch(scene, 0);
                 });
             }
         });
@@ -359,8 +474,7 @@ public class Main extends Application {
                 }
             });
 
-            updateSearchCardList(searchCardList, scene);
-            updateCardListView(searchListView, searchCardList);
+            requestSearch(scene, 0);
         });
 
         // Rarity
@@ -379,8 +493,7 @@ public class Main extends Application {
         ((VBox) searchRaritySelectAllCheck.getParent()).getChildren().forEach(child -> {
             if(child instanceof CheckBox){
                 ((CheckBox) child).setOnAction(e -> {
-                    updateSearchCardList(searchCardList, scene);
-                    updateCardListView(searchListView, searchCardList);
+                    requestSearch(scene, 0);
                 });
             }
         });
@@ -394,8 +507,7 @@ public class Main extends Application {
                 }
             });
 
-            updateSearchCardList(searchCardList, scene);
-            updateCardListView(searchListView, searchCardList);
+            requestSearch(scene, 0);
         });
 
         // Colors
@@ -420,8 +532,7 @@ public class Main extends Application {
         ((VBox) searchManaSelectAllCheck.getParent()).getChildren().forEach(child -> {
             if(child instanceof CheckBox){
                 ((CheckBox) child).setOnAction(e -> {
-                    updateSearchCardList(searchCardList, scene);
-                    updateCardListView(searchListView, searchCardList);
+                    requestSearch(scene, 0);
                 });
             }
         });
@@ -435,8 +546,7 @@ public class Main extends Application {
                 }
             });
 
-            updateSearchCardList(searchCardList, scene);
-            updateCardListView(searchListView, searchCardList);
+            requestSearch(scene, 0);
         });
 
         // Cost
@@ -469,8 +579,7 @@ public class Main extends Application {
         ((VBox) searchCostSelectAllCheck.getParent()).getChildren().forEach(child -> {
             if(child instanceof CheckBox){
                 ((CheckBox) child).setOnAction(e -> {
-                    updateSearchCardList(searchCardList, scene);
-                    updateCardListView(searchListView, searchCardList);
+                    requestSearch(scene, 0);
                 });
             }
         });
@@ -484,63 +593,76 @@ public class Main extends Application {
                 }
             });
 
-            updateSearchCardList(searchCardList, scene);
-            updateCardListView(searchListView, searchCardList);
+            requestSearch(scene, 0);
         });
 
         // Cards
-        searchCardList = new ArrayList<>();
-        searchListView = (ListView) scene.lookup("#searchListView");
+        searchListView.setCellFactory(listView -> CardListCell.forCards(symbols, rarityColor, manaSymbolImages));
 
         searchListView.setOnMouseClicked(e -> {
-            updateCardPreview(searchListView, searchCardList);
+            updateCardPreview(searchListView.getSelectionModel().getSelectedItem());
 
             if(e.getClickCount() == 2){
                 int tabIndex = deckTabPane.getSelectionModel().getSelectedIndex();
-                addCardToDeckList(searchListView, deckListView.get(tabIndex), searchCardList, deckCardMap.get(tabIndex), primaryStage);
+                addCardToDeckList(searchListView.getSelectionModel().getSelectedItem(), deckSections.get(tabIndex), primaryStage);
             }
         });
-        searchListView.setOnKeyReleased(e -> updateCardPreview(searchListView, searchCardList));
+        searchListView.setOnKeyReleased(e -> updateCardPreview(searchListView.getSelectionModel().getSelectedItem()));
         searchListView.setOnKeyPressed(e -> {
             if(e.getCode() == KeyCode.ENTER){
                 int tabIndex = deckTabPane.getSelectionModel().getSelectedIndex();
-                addCardToDeckList(searchListView, deckListView.get(tabIndex), searchCardList, deckCardMap.get(tabIndex), primaryStage);
+                addCardToDeckList(searchListView.getSelectionModel().getSelectedItem(), deckSections.get(tabIndex), primaryStage);
             }
         });
 
-        searchTextBox = (TextField) scene.lookup("#searchTextBox");
         searchTextBox.setOnAction(e -> {
-            //updateSearchCardList(searchCardList, scene);
-            //updateCardListView(searchListView, searchCardList);
             int tabIndex = deckTabPane.getSelectionModel().getSelectedIndex();
-            addCardToDeckList(searchListView, deckListView.get(tabIndex), searchCardList, deckCardMap.get(tabIndex), primaryStage);
+            addCardToDeckList(searchListView.getSelectionModel().getSelectedItem(), deckSections.get(tabIndex), primaryStage);
         });
 
+        completionMenu = new ContextMenu();
         searchTextBox.setOnKeyReleased(e -> {
-            updateSearchCardList(searchCardList, scene);
-            updateCardListView(searchListView, searchCardList);
+            requestSearch(scene, searchDelay);
+            if(e.getCode() == KeyCode.ESCAPE || e.getCode() == KeyCode.ENTER){
+                completionMenu.hide();
+            }else if(!e.getCode().isNavigationKey()){
+                updateCompletions(scene);
+            }
         });
 
+        searchRulesCheck = (CheckBox) scene.lookup("#searchRulesCheck");
+        searchRulesCheck.setOnAction(e -> requestSearch(scene, 0));
+
+        searchSortCombo = lookup(scene, "#searchSortCombo");
+        searchSortCombo.getItems().addAll(SortOrder.values());
+        searchSortCombo.getSelectionModel().select(SortOrder.NAME);
+        searchSortCombo.setOnAction(e -> requestSearch(scene, 0));
+
+        searchCountLabel = (Label) scene.lookup("#searchCountLabel");
+        searchMoreButton = (Button) scene.lookup("#searchMoreButton");
+        searchMoreButton.setOnAction(e -> showMoreSearchResults());
+
         searchSetsLatestFiveCheck.fire();
 
         // Deck ListViews
         for(int i=0; i<deckListView.size(); i++){
             int finalI = i;
+            deckListView.get(i).setCellFactory(listView -> CardListCell.forDeck(symbols, rarityColor, manaSymbolImages));
             deckListView.get(i).setOnMouseClicked(e -> {
                 if(e.getButton() == MouseButton.PRIMARY) {
-                    updateCardPreview(deckListView.get(finalI), deckCardMap.get(finalI));
+                    updateCardPreview(getSelectedDeckCard(deckListView.get(finalI)));
 
                     if(e.getClickCount() == 2){
-                        removeCardFromDeckList(deckListView.get(finalI), deckCardMap.get(finalI), false, primaryStage);
+                        removeCardFromDeckList(deckListView.get(finalI), deckSections.get(finalI), false, primaryStage);
                     }
                 }
             });
 
             deckListView.get(i).setOnKeyReleased(e -> {
                 if(e.getCode() == KeyCode.DELETE || e.getCode() == KeyCode.BACK_SPACE){
-                    removeCardFromDeckList(deckListView.get(finalI), deckCardMap.get(finalI), true, primaryStage);
+                    removeCardFromDeckList(deckListView.get(finalI), deckSections.get(finalI), true, primaryStage);
                 }else{
-                    updateCardPreview(deckListView.get(finalI), deckCardMap.get(finalI));
+                    updateCardPreview(getSelectedDeckCard(deckListView.get(finalI)));
                 }
             });
         }
@@ -558,30 +680,29 @@ public class Main extends Application {
 
         centerPlusButton.setOnAction(e -> {
             int tabIndex = deckTabPane.getSelectionModel().getSelectedIndex();
-            int selectedIndex = deckListView.get(tabIndex).getSelectionModel().getSelectedIndex();
-            addCardToDeckList(deckListView.get(tabIndex), deckListView.get(tabIndex), getSortedDeck(deckCardMap.get(tabIndex)), deckCardMap.get(tabIndex), primaryStage);
-            updateDeckCardListView(deckListView.get(tabIndex), deckCardMap.get(tabIndex), selectedIndex);
+            CardData card = getSelectedDeckCard(deckListView.get(tabIndex));
+            addCardToDeckList(card, deckSections.get(tabIndex), primaryStage);
+            if(card != null){
+                deckListView.get(tabIndex).getSelectionModel().select(deckSections.get(tabIndex).indexOfCard(card));
+            }
         });
 
         centerMinusButton.setOnAction(e -> {
             int tabIndex = deckTabPane.getSelectionModel().getSelectedIndex();
-            removeCardFromDeckList(deckListView.get(tabIndex), deckCardMap.get(tabIndex), false, primaryStage);
+            removeCardFromDeckList(deckListView.get(tabIndex), deckSections.get(tabIndex), false, primaryStage);
         });
 
         centerAddButton.setOnAction(e -> {
             int tabIndex = deckTabPane.getSelectionModel().getSelectedIndex();
-            addCardToDeckList(searchListView, deckListView.get(tabIndex), searchCardList, deckCardMap.get(tabIndex), primaryStage);
+            addCardToDeckList(searchListView.getSelectionModel().getSelectedItem(), deckSections.get(tabIndex), primaryStage);
         });
 
         centerRemoveButton.setOnAction(e -> {
             int tabIndex = deckTabPane.getSelectionModel().getSelectedIndex();
-            removeCardFromDeckList(deckListView.get(tabIndex), deckCardMap.get(tabIndex), true, primaryStage);
+            removeCardFromDeckList(deckListView.get(tabIndex), deckSections.get(tabIndex), true, primaryStage);
         });
 
         // Main Controls
-        deckNameTextField = (TextField) scene.lookup("#deckNameTextField");
-        deckNameTextField.setText("Untitled");
-
         newButton = (Button) scene.lookup("#newButton");
         saveButton = (Button) scene.lookup("#saveButton");
         openButton = (Button) scene.lookup("#openButton");
@@ -593,16 +714,36 @@ public class Main extends Application {
         openButton.setOnAction(e -> actionOpenDeck(primaryStage));
         importButton.setOnAction(e -> actionImportDeck(primaryStage));
         exportButton.setOnAction(e -> actionExportDeck(primaryStage));
+    }
 
-        primaryStage.setOnCloseRequest(e -> {
-            e.consume();
-            closeWindow(primaryStage);
-        });
+    /**
+     * Records how long a startup phase took, printed only with -Ddeckeditorfx.debug=true.
+     */
+    private long logPhase(String phase, long startTime){
+        long now = System.nanoTime();
+        startupTimes.put(phase, (now - startTime) / 1000000);
+        if(DEBUG){
+            System.out.println(phase + ": " + (now - startTime) / 1000000 + " ms");
+        }
+        return now;
+    }
 
-        // Menu Items
-        MenuBar menuBar = (MenuBar) scene.lookup("#menuBar");
-        menuBar.getMenus().get(0).getItems().get(0).setOnAction(e -> closeWindow(primaryStage));
+    /**
+     * Milliseconds of each startup phase in the order they finished.
+     */
+    public Map<String, Long> getStartupTimes() {
+        synchronized(startupTimes){
+            return new LinkedHashMap<>(startupTimes);
+        }
+    }
 
+    /**
+     * Node of the scene with the given id, typed by the caller. The FXML doesn't know the type parameters of its
+     * controls, so this is the one place that casts.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Node> T lookup(Scene scene, String selector){
+        return (T) scene.lookup(selector);
     }
 
     private int savePrompt(){
@@ -662,9 +803,8 @@ public class Main extends Application {
     private void doNewDeck(Stage primaryStage){
         deckFile = null;
         deckNameTextField.setText("Untitled");
-        for(int i=0; i<deckCardMap.size(); i++){
-            deckCardMap.get(i).clear();
-            updateDeckCardListView(deckListView.get(i), deckCardMap.get(i));
+        for(DeckSection section : deckSections){
+            section.clear();
         }
 
         setSaved(false, primaryStage);
@@ -711,10 +851,11 @@ public class Main extends Application {
         File tempFile = fileChooser.showOpenDialog(primaryStage);
 
         if(tempFile != null) {
-            for(int i=0; i<deckCardMap.size(); i++){
-                deckCardMap.get(i).clear();
-                updateDeckCardListView(deckListView.get(i), deckCardMap.get(i));
+            for(DeckSection section : deckSections){
+                section.clear();
             }
+            importCloseMatches.clear();
+            importMissing.clear();
 
             String ext = tempFile.getName().substring(tempFile.getName().lastIndexOf(".") + 1).toLowerCase();
             switch(ext){
@@ -729,8 +870,9 @@ public class Main extends Application {
                     break;
             }
 
+            boolean changed = showImportReport(tempFile);
             updateCharts();
-            setSaved(true, primaryStage);
+            setSaved(!changed, primaryStage);
         }
     }
 
@@ -780,21 +922,9 @@ public class Main extends Application {
                     String count = line.substring(0, line.indexOf(" "));
                     String name = line.substring(line.indexOf(" ")+1);
 
-                    CardData card = null;
-                    for(CardData cardData : allCards){
-                        if(cardData.getName().equalsIgnoreCase(name)){
-                            card = cardData;
-                            break;
-                        }
-                    }
-
-                    if(card != null) {
-                        deckCardMap.get((sb ? 2 : 1)).put(card, Integer.parseInt(count));
-                    }
+                    importCard(name, null, (sb ? 2 : 1), Integer.parseInt(count));
                 }
             }
-            updateDeckCardListView(deckListView.get(1), deckCardMap.get(1));
-            updateDeckCardListView(deckListView.get(2), deckCardMap.get(2));
             br.close();
         } catch (IOException e) {
             e.printStackTrace();
@@ -841,24 +971,8 @@ public class Main extends Application {
                             String setCode = attr.getAttribute("set");
                             int count = Integer.parseInt(attr.getAttribute("count"));
 
-                            CardData card = null;
-                            for (CardData cardData : allCards) {
-                                String cardName = cardData.getName().replaceAll("Æ", "AE").replaceAll(" // ", "_").toLowerCase();
-
-                                if (cardName.equals(name.toLowerCase())){
-                                    card = cardData;
-                                    if(cardData.getSetCode().equalsIgnoreCase(setCode)){
-                                        break;
-                                    }
-                                }
-                            }
-
-                            if (card != null) {
-                                deckCardMap.get(i).put(card, count);
-                                updateDeckCardListView(deckListView.get(i), deckCardMap.get(i));
-                            }else{
-                                System.out.println(name + " " + setCode);
-                            }
+                            // Names are saved with the \u00C6 ligature as AE and split cards joined by _, which normalize to the same name
+                            importCard(name, setCode, i, count);
                         }
                     }
                 }
@@ -873,6 +987,106 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Adds an imported card to a section when its name matches a card exactly or after normalizing. A close match
+     * is only a guess, so it is kept for the import report along with the names that match nothing.
+     */
+    private void importCard(String name, String setCode, int section, int count){
+        FuzzyMatcher.Match match = fuzzyMatcher.findBest(name);
+        if(match == null || match.getConfidence() < importConfidence){
+            importMissing.add(count + " " + name + (setCode != null && !setCode.isEmpty() ? " (" + setCode + ")" : ""));
+            return;
+        }
+
+        // Prefers the printing from setCode when there is one
+        CardData card = null;
+        for(CardData printing : match.getPrintings()){
+            card = printing;
+            if(setCode == null || printing.getSetCode().equalsIgnoreCase(setCode)){
+                break;
+            }
+        }
+
+        if(match.getConfidence() < 1){
+            importCloseMatches.add(new CloseMatch(name, card, section, count, match.getConfidence()));
+        }else{
+            deckSections.get(section).setCount(card, count);
+        }
+    }
+
+    /**
+     * Lists the cards of the last import that were not matched exactly and asks whether to add the close matches.
+     * Returns true when they were added.
+     */
+    private boolean showImportReport(File file){
+        if(importCloseMatches.isEmpty() && importMissing.isEmpty()){
+            return false;
+        }
+
+        StringBuilder report = new StringBuilder();
+        if(!importCloseMatches.isEmpty()){
+            report.append("Close matches:\n");
+            for(CloseMatch closeMatch : importCloseMatches){
+                report.append("  " + closeMatch.count + " " + closeMatch.name + "  \u2192  " + closeMatch.card.getName()
+                        + " (" + closeMatch.card.getSetCode() + String.format(", %.0f%%)", closeMatch.confidence * 100) + "\n");
+            }
+        }
+        if(!importMissing.isEmpty()){
+            if(report.length() > 0){
+                report.append("\n");
+            }
+            report.append("Not found:\n");
+            for(String missing : importMissing){
+                report.append("  " + missing + "\n");
+            }
+        }
+
+        TextArea reportArea = new TextArea(report.toString());
+        reportArea.setEditable(false);
+        reportArea.setPrefRowCount(Math.min(20, importCloseMatches.size() + importMissing.size() + 3));
+
+        Alert alert = new Alert(importCloseMatches.isEmpty() ? Alert.AlertType.WARNING : Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Import");
+        alert.setHeaderText("Some cards of " + file.getName() + " did not match a card exactly."
+                + (importCloseMatches.isEmpty() ? "" : "\nAdd the close matches to the deck?"));
+        alert.getDialogPane().setContent(reportArea);
+
+        ButtonType addBtn = new ButtonType("Add close matches");
+        ButtonType skipBtn = new ButtonType("Skip", ButtonBar.ButtonData.CANCEL_CLOSE);
+        if(importCloseMatches.isEmpty()){
+            alert.getButtonTypes().setAll(ButtonType.OK);
+        }else{
+            alert.getButtonTypes().setAll(addBtn, skipBtn);
+        }
+
+        Optional<ButtonType> result = alert.showAndWait();
+        if(result.isPresent() && result.get() == addBtn){
+            for(CloseMatch closeMatch : importCloseMatches){
+                deckSections.get(closeMatch.section).add(closeMatch.card, closeMatch.count);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * An imported name that was matched to a card with a confidence below 1.
+     */
+    private static class CloseMatch {
+        private final String name;
+        private final CardData card;
+        private final int section, count;
+        private final double confidence;
+
+        private CloseMatch(String name, CardData card, int section, int count, double confidence){
+            this.name = name;
+            this.card = card;
+            this.section = section;
+            this.count = count;
+            this.confidence = confidence;
+        }
+    }
+
     private void openJDeck(File file){
         try {
             JSONParser parser = new JSONParser();
@@ -882,8 +1096,8 @@ public class Main extends Application {
                 deckNameTextField.setText(deckObj.get("name").toString());
             }
 
-            for(int i=0; i<deckCardMap.size(); i++){
-                deckCardMap.get(i).clear();
+            for(int i=0; i<deckSections.size(); i++){
+                deckSections.get(i).clear();
                 if (deckObj.containsKey("section" + i)) {
                     JSONArray cardsArray = (JSONArray) deckObj.get("section" + i);
                     for(Object card : cardsArray){
@@ -897,15 +1111,13 @@ public class Main extends Application {
                         if (cardObj.containsKey("multiverseId")) {
                             for (CardData cardData : allCards) {
                                 if (cardData.getMultiverseId().equals(cardObj.get("multiverseId").toString())) {
-                                    deckCardMap.get(i).put(cardData, count);
+                                    deckSections.get(i).setCount(cardData, count);
                                     break;
                                 }
                             }
                         }
                     }
                 }
-
-                updateDeckCardListView(deckListView.get(i), deckCardMap.get(i));
             }
 
         } catch (IOException e1) {
@@ -918,19 +1130,19 @@ public class Main extends Application {
     private void saveAsDec(File file){
         StringBuilder deckStr = new StringBuilder();
 
-        for(CardData cardData : deckCardMap.get(0).keySet()){
-            deckStr.append(Integer.toString(deckCardMap.get(0).get(cardData)) + " " + cardData.getName() + "\n");
+        for(DeckEntry entry : deckSections.get(0)){
+            deckStr.append(Integer.toString(entry.getCount()) + " " + entry.getCard().getName() + "\n");
         }
-        for(CardData cardData : deckCardMap.get(1).keySet()){
-            deckStr.append(Integer.toString(deckCardMap.get(1).get(cardData)) + " " + cardData.getName() + "\n");
+        for(DeckEntry entry : deckSections.get(1)){
+            deckStr.append(Integer.toString(entry.getCount()) + " " + entry.getCard().getName() + "\n");
         }
 
         deckStr.append("//Sideboard\n");
-        for(CardData cardData : deckCardMap.get(2).keySet()){
-            deckStr.append("SB: " + Integer.toString(deckCardMap.get(2).get(cardData)) + " " + cardData.getName() + "\n");
+        for(DeckEntry entry : deckSections.get(2)){
+            deckStr.append("SB: " + Integer.toString(entry.getCount()) + " " + entry.getCard().getName() + "\n");
         }
-        for(CardData cardData : deckCardMap.get(3).keySet()){
-            deckStr.append("SB: " + Integer.toString(deckCardMap.get(3).get(cardData)) + " " + cardData.getName() + "\n");
+        for(DeckEntry entry : deckSections.get(3)){
+            deckStr.append("SB: " + Integer.toString(entry.getCount()) + " " + entry.getCard().getName() + "\n");
         }
 
         try {
@@ -949,37 +1161,33 @@ public class Main extends Application {
         deckStr.append("<deck game=\"mtg\" mode=\"Constructed\" format=\"Standard\" name=\"\">");
 
         /*deckStr.append("<section id=\"commander\">");
-        for(CardData cardData : deckCardMap.get(0).keySet()){
-            HashMap<CardData, Integer> map = deckCardMap.get(0);
-            deckStr.append("<item id=\"" + cardData.getName() + "\">");
-            deckStr.append("<card set=\"" + cardData.getSetCode() + "\" lang=\"EN\" count=\"" + map.get(cardData) + "\"/>");
+        for(DeckEntry entry : deckSections.get(0)){
+            deckStr.append("<item id=\"" + entry.getCard().getName() + "\">");
+            deckStr.append("<card set=\"" + entry.getCard().getSetCode() + "\" lang=\"EN\" count=\"" + entry.getCount() + "\"/>");
             deckStr.append("</item>");
         }
         deckStr.append("</section>");*/
 
         deckStr.append("<section id=\"main\">");
-        for(CardData cardData : deckCardMap.get(1).keySet()){
-            HashMap<CardData, Integer> map = deckCardMap.get(1);
-            deckStr.append("<item id=\"" + cardData.getName() + "\">");
-            deckStr.append("<card set=\"" + cardData.getSetCode() + "\" lang=\"EN\" count=\"" + map.get(cardData) + "\"/>");
+        for(DeckEntry entry : deckSections.get(1)){
+            deckStr.append("<item id=\"" + entry.getCard().getName() + "\">");
+            deckStr.append("<card set=\"" + entry.getCard().getSetCode() + "\" lang=\"EN\" count=\"" + entry.getCount() + "\"/>");
             deckStr.append("</item>");
         }
         deckStr.append("</section>");
 
         deckStr.append("<section id=\"sideboard\">");
-        for(CardData cardData : deckCardMap.get(2).keySet()){
-            HashMap<CardData, Integer> map = deckCardMap.get(2);
-            deckStr.append("<item id=\"" + cardData.getName() + "\">");
-            deckStr.append("<card set=\"" + cardData.getSetCode() + "\" lang=\"EN\" count=\"" + map.get(cardData) + "\"/>");
+        for(DeckEntry entry : deckSections.get(2)){
+            deckStr.append("<item id=\"" + entry.getCard().getName() + "\">");
+            deckStr.append("<card set=\"" + entry.getCard().getSetCode() + "\" lang=\"EN\" count=\"" + entry.getCount() + "\"/>");
             deckStr.append("</item>");
         }
         deckStr.append("</section>");
 
         /*deckStr.append("<section id=\"maybeboard\">");
-        for(CardData cardData : deckCardMap.get(3).keySet()){
-            HashMap<CardData, Integer> map = deckCardMap.get(3);
-            deckStr.append("<item id=\"" + cardData.getName() + "\">");
-            deckStr.append("<card set=\"" + cardData.getSetCode() + "\" lang=\"EN\" count=\"" + map.get(cardData) + "\"/>");
+        for(DeckEntry entry : deckSections.get(3)){
+            deckStr.append("<item id=\"" + entry.getCard().getName() + "\">");
+            deckStr.append("<card set=\"" + entry.getCard().getSetCode() + "\" lang=\"EN\" count=\"" + entry.getCount() + "\"/>");
             deckStr.append("</item>");
         }
         deckStr.append("</section>");*/
@@ -999,13 +1207,13 @@ public class Main extends Application {
         JSONObject deckObj = new JSONObject();
         deckObj.put("name", deckNameTextField.getText());
 
-        for(int i=0; i<deckCardMap.size(); i++){
+        for(int i=0; i<deckSections.size(); i++){
             JSONArray cardsArray = new JSONArray();
-            for(CardData cardData : deckCardMap.get(i).keySet()){
+            for(DeckEntry entry : deckSections.get(i)){
                 JSONObject cardObj = new JSONObject();
 
-                cardObj.put("count", deckCardMap.get(i).get(cardData));
-                cardObj.put("multiverseId", cardData.getMultiverseId());
+                cardObj.put("count", entry.getCount());
+                cardObj.put("multiverseId", entry.getCard().getMultiverseId());
 
                 cardsArray.add(cardObj);
             }
@@ -1029,44 +1237,26 @@ public class Main extends Application {
         primaryStage.setTitle(titlePrefix + deckNameTextField.getText() + (!isSaved ? " [*]" : ""));
     }
 
-    private void addCardToDeckList(ListView srcListView, ListView destListView, ArrayList<CardData> srcCardData, HashMap<CardData, Integer> destCardData, Stage primaryStage){
-        BorderPane borderPane = (BorderPane) srcListView.getSelectionModel().getSelectedItem();
-        if(borderPane != null) {
-            int searchCardListIndex = Integer.parseInt(((Label) borderPane.getCenter()).getText());
-            CardData card = srcCardData.get(searchCardListIndex);
-
-            if(destCardData.containsKey(card)){
-                destCardData.put(card, destCardData.get(card)+1);
-            }else{
-                destCardData.put(card, 1);
-            }
-
-            updateDeckCardListView(destListView, destCardData);
+    private void addCardToDeckList(CardData card, DeckSection section, Stage primaryStage){
+        if(card != null) {
+            nameCompleter.recordUse(card.getName());
+            section.add(card, 1);
         }
 
         updateCharts();
         setSaved(false, primaryStage);
     }
 
-    private void removeCardFromDeckList(ListView listView, HashMap<CardData, Integer> cards, boolean allFlag, Stage primaryStage){
-        BorderPane borderPane = (BorderPane) listView.getSelectionModel().getSelectedItem();
-        if(borderPane != null) {
-            ArrayList<CardData> cardList = getSortedDeck(cards);
-
-            int searchCardListIndex = Integer.parseInt(((Label) borderPane.getCenter()).getText());
-            CardData card = cardList.get(searchCardListIndex);
-
-            if(cards.containsKey(card)){
-                int count = cards.get(card);
-                if(count > 1 && !allFlag){
-                    cards.put(card, --count);
-                }else{
-                    cards.remove(card);
-                    searchCardListIndex--;
-                }
+    private void removeCardFromDeckList(ListView<DeckEntry> listView, DeckSection section, boolean allFlag, Stage primaryStage){
+        CardData card = getSelectedDeckCard(listView);
+        if(card != null) {
+            int index = section.indexOfCard(card);
+            if(section.remove(card, allFlag ? Integer.MAX_VALUE : 1) == 0){
+                index--;
             }
 
-            updateDeckCardListView(listView, cards, searchCardListIndex);
+            listView.getSelectionModel().select(index);
+            updateCardPreview(getSelectedDeckCard(listView));
         }
 
         updateCharts();
@@ -1090,7 +1280,8 @@ public class Main extends Application {
 
         int[] typeCounts = new int[7];
         String[] colorCode = new String[]{"C", "G", "U", "R", "B", "W"};
-        for(CardData cardData : deckCardMap.get(1).keySet()){
+        for(DeckEntry entry : deckSections.get(1)){
+            CardData cardData = entry.getCard();
 
             List<String> colors = new ArrayList<>();
             if(!cardData.getType().toLowerCase().contains("land")) {
@@ -1106,9 +1297,9 @@ public class Main extends Application {
             HashMap<String, Integer> colorWeights = cmcColorWeights.get(cardData.getCmc());
             colors.forEach(color -> {
                 if(colorWeights.containsKey(color)){
-                    colorWeights.put(color, colorWeights.get(color) + deckCardMap.get(1).get(cardData));
+                    colorWeights.put(color, colorWeights.get(color) + entry.getCount());
                 }else{
-                    colorWeights.put(color, deckCardMap.get(1).get(cardData));
+                    colorWeights.put(color, entry.getCount());
                 }
             });
 
@@ -1202,285 +1393,144 @@ public class Main extends Application {
         }
     }
 
-    private ArrayList<CardData> getSortedDeck(HashMap<CardData, Integer> cards){
-        ArrayList<CardData> cardList = new ArrayList<>();
-        cards.keySet().forEach(cardData -> cardList.add(cardData));
-        Collections.sort(cardList, (card1, card2) -> card1.getName().compareTo(card2.getName()));
-
-        return cardList;
-    }
-
-    private void updateCardPreview(ListView listView, HashMap<CardData, Integer> cards){
-        updateCardPreview(listView, getSortedDeck(cards));
+    private CardData getSelectedDeckCard(ListView<DeckEntry> listView){
+        DeckEntry entry = listView.getSelectionModel().getSelectedItem();
+        return entry != null ? entry.getCard() : null;
     }
 
-    private void updateCardPreview(ListView listView, ArrayList<CardData> cards) {
-        BorderPane borderPane = (BorderPane) listView.getSelectionModel().getSelectedItem();
-        if(borderPane != null) {
-            int searchCardListIndex = Integer.parseInt(((Label) borderPane.getCenter()).getText());
-            CardData card = cards.get(searchCardListIndex);
+    private void updateCardPreview(CardData card) {
+        if(card != null) {
             updateCardInfo(card);
 
-            if(!cardPreviewCache.containsKey(card.getMultiverseId())) {
-                File hqCard = new File("res/cache/hqcards/" + card.getSetCode() + "/" + card.getNameUnmodified().replaceAll("\\\"", "") + (card.hasVariations() ? card.getVariationNum() : "") + ".full.jpg");
-                if (!hqCard.exists()) {
-                    File lqCard = new File("res/cache/lqcards/" + card.getSetCode() + "/" + card.getNameUnmodified().replaceAll("\\\"", "") + (card.hasVariations() ? card.getVariationNum() : "") + ".full.jpg");
-                    if (!lqCard.exists()) {
-                        // Download
-                        try {
-                            URL url = new URL("http://gatherer.wizards.com/Handlers/Image.ashx?multiverseid=" + card.getMultiverseId() + "&type=card");
-                            InputStream in = new BufferedInputStream(url.openStream());
-                            ByteArrayOutputStream out = new ByteArrayOutputStream();
-                            byte[] buf = new byte[1024];
-                            int n = 0;
-                            while((n = in.read(buf)) != -1){
-                                out.write(buf, 0, n);
-                            }
-                            out.close();
-                            in.close();
-
-                            new File(lqCard.getAbsolutePath().substring(0, lqCard.getAbsolutePath().lastIndexOf(File.separator))).mkdirs();
-                            FileOutputStream fos = new FileOutputStream(lqCard);
-                            fos.write(out.toByteArray());
-                            fos.close();
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                    cardPreviewCache.put(card.getMultiverseId(), new Image(lqCard.toURI().toString()));
-                } else {
-                    cardPreviewCache.put(card.getMultiverseId(), new Image(hqCard.toURI().toString()));
-                }
-            }
-
-            if(cardPreviewCache.containsKey(card.getMultiverseId())) {
-                Image cardImg = cardPreviewCache.get(card.getMultiverseId());
+            // Images are decoded at the size of the preview, so a resized preview needs its own copy
+            double width = cardPreview.getFitWidth(), height = cardPreview.getFitHeight();
+            String key = card.getMultiverseId() + "@" + (int) width + "x" + (int) height;
+            Image cardImg = cardPreviewCache.get(key);
+            if(cardImg != null){
+                cardImageLoader.cancel();
                 cardPreview.setImage(cardImg);
             }else{
+                // The back is shown until the image is loaded
                 cardPreview.setImage(cardBack);
+                cardImageLoader.request(card, width, height, image -> {
+                    cardPreviewCache.put(key, image);
+                    cardPreview.setImage(image);
+                });
             }
         }
     }
 
-    private void updateSearchCardList(ArrayList<CardData> cards, Scene scene){
-        cards.clear();
-
-        ArrayList<String> setCodes = new ArrayList<>();
-        VBox sets = (VBox) scene.lookup("#searchSetsVBox");
-        sets.getChildren().forEach(setChild -> {
-            if(setChild instanceof VBox){
-                VBox child = (VBox) setChild;
-                child.getChildren().forEach(setName -> {
-                    if(setName instanceof CheckBox){
-                        CheckBox checkBox = (CheckBox) setName;
-                        if(checkBox.isSelected()) {
-                            String name = checkBox.getText();
-                            for (SetData setData : allSets) {
-                                if (setData.getBlock().equalsIgnoreCase(name) || setData.getName().equalsIgnoreCase(name)) {
-                                    setCodes.add(setData.getCode());
-                                }
-                            }
-                        }
-                    }
-                });
+    private void requestSearch(Scene scene, long delayMillis){
+        SearchFilter filter = getSearchFilter();
+        searchScheduler.submit(filter, searchSortCombo.getValue(), delayMillis, result -> {
+            searchResult = result;
+            ListDiff.apply(searchListView.getItems(), result.getPage(0, searchPageSize), cardData -> cardData);
+            if(searchListView.getSelectionModel().isEmpty()){
+                searchListView.getSelectionModel().selectFirst();
             }
+            updateCardPreview(searchListView.getSelectionModel().getSelectedItem());
+            updateSearchCount();
+            searchListView.setPlaceholder(result.isEmpty() ? getSuggestionBox(filter, scene) : null);
         });
+    }
 
-        CardDataLoop:
-        for(CardData cardData : allCards){
-            String cardName = "";
-            if(cardData.getNames() != null && cardData.getNames().length > 1){
-                for(int i=0; i<cardData.getNames().length; i++){
-                    cardName += cardData.getNames()[i];
-                    if(i < cardData.getNames().length-1){
-                        cardName += " ";
-                    }
-                }
-            }else {
-                cardName = cardData.getName();
-            }
-
-
-            if(!cardName.toLowerCase().contains(searchTextBox.getText().toLowerCase())){
-                continue CardDataLoop;
-            }
-
-            if(cardData.getCmc() > 10){
-                if(!searchCostCB.get(10).isSelected()){
-                    continue CardDataLoop;
-                }
-            }else if(!searchCostCB.get(cardData.getCmc()).isSelected()){
-                continue CardDataLoop;
-            }
-
-            List<String> colors = new ArrayList<>();
-            String[] colorCode = new String[]{"C", "G", "U", "R", "B", "W"};
-            if(cardData.getColorIdentity() == null){
-                colors.add("C");
-            }else{
-                colors.addAll(Arrays.asList(cardData.getColorIdentity()));
-            }
-
-            for(int i=0; i<searchManaCB.size(); i++){
-                if(i >= searchManaCB.size()-1){
-                    if(colors.size() <= 1 && searchManaCB.get(i).isSelected()){
-                        continue CardDataLoop;
-                    }
-                }else {
-                    if (colors.contains(colorCode[i]) && !searchManaCB.get(i).isSelected()) {
-                        continue CardDataLoop;
-                    }
-                }
-            }
+    /**
+     * Adds the next page of the search result to the list.
+     */
+    private void showMoreSearchResults(){
+        int shown = searchListView.getItems().size();
+        if(searchResult != null && shown < searchResult.size()){
+            searchListView.getItems().addAll(searchResult.getPage(shown, searchPageSize));
+            updateSearchCount();
+        }
+    }
 
-            for(int i=0; i<searchRarityCB.size(); i++){
-                if((cardData.getRarity().equalsIgnoreCase(searchRarityCB.get(i).getText()) && !searchRarityCB.get(i).isSelected()) || (cardData.getRarity().equalsIgnoreCase("Basic Land") && !searchRarityCB.get(0).isSelected())){
-                    continue CardDataLoop;
-                }
-            }
+    private void updateSearchCount(){
+        int shown = searchListView.getItems().size();
+        searchCountLabel.setText("Showing " + shown + " of " + searchResult.size() + " cards");
+        searchMoreButton.setDisable(shown >= searchResult.size());
+    }
 
-            for(int i=0; i<searchTypeCB.size(); i++){
-                if(cardData.getTypes() != null && cardData.getTypes().length > 0){
-                    List<String> types = Arrays.asList(cardData.getTypes());
-                    if(types.contains(searchTypeCB.get(i).getText()) && !searchTypeCB.get(i).isSelected()) {
-                        continue CardDataLoop;
-                    }
-                }
+    /**
+     * Fills the completion menu below the search box with the card names starting with the text.
+     */
+    private void updateCompletions(Scene scene){
+        String text = searchTextBox.getText();
+        completionMenu.getItems().clear();
+        if(!text.isEmpty() && !searchRulesCheck.isSelected() && !QueryCompiler.isQuery(text)){
+            for(String name : nameCompleter.complete(text, 8)){
+                MenuItem item = new MenuItem(name);
+                item.setMnemonicParsing(false);
+                item.setOnAction(e -> {
+                    searchTextBox.setText(name);
+                    searchTextBox.positionCaret(name.length());
+                    requestSearch(scene, 0);
+                });
+                completionMenu.getItems().add(item);
             }
+        }
 
-            for(String setCode : setCodes) {
-                if (cardData.getSetCode().equalsIgnoreCase(setCode)) {
-                    cards.add(cardData);
-                    break;
-                }
-            }
+        if(completionMenu.getItems().isEmpty()){
+            completionMenu.hide();
+        }else if(!completionMenu.isShowing()){
+            completionMenu.show(searchTextBox, Side.BOTTOM, 0, 0);
         }
     }
 
-    private void updateCardListView(ListView listView, ArrayList<CardData> cards){
-        listView.getItems().clear();
-
-        cards.forEach(cardData->{
-            BorderPane borderPane = new BorderPane();
-            HBox manaHBox = new HBox();
-            Label cardLabel = new Label();
-            Label setCodeLabel = new Label();
-            setCodeLabel.setVisible(false);
-            setCodeLabel.setText(Integer.toString(cards.indexOf(cardData)));
-
-            cardLabel.setText(cardData.getName());
-
-            Group group = new Group();
-            ImageView typeImageView = new ImageView();
-            group.getChildren().add(typeImageView);
-            cardLabel.setGraphic(group);
-
-            if(cardData.getTypes() != null && cardData.getTypes().length > 0) {
-                String mainType = cardData.getTypes()[0];
-                if (symbols.containsKey(mainType)) {
-                    typeImageView.setImage(symbols.get(mainType));
-                }
-            }
-
-            if(rarityColor.containsKey(cardData.getRarity())){
-                Rectangle rect = new Rectangle(0, 0, 15, 15);
-                rect.setFill(rarityColor.get(cardData.getRarity()));
-                rect.setBlendMode(BlendMode.ADD);
-                group.getChildren().add(rect);
-            }
+    /**
+     * Shown in place of an empty result, offers the card names closest to a name search.
+     */
+    private Node getSuggestionBox(SearchFilter filter, Scene scene){
+        VBox box = new VBox(4, new Label("No cards found."));
+        box.setAlignment(Pos.CENTER);
+        if(filter.isRulesText() || filter.getText().isEmpty() || QueryCompiler.isQuery(filter.getText())){
+            return box;
+        }
 
-            Pattern pattern = Pattern.compile("\\{(.*?)\\}");
-            Matcher matcher = pattern.matcher(cardData.getManaCost());
-            while(matcher.find()){
-                String val = matcher.group(1).replaceAll("/", "");
-                if(symbols.containsKey(val)){
-                    manaHBox.getChildren().add(new ImageView(symbols.get(val)));
-                }else{
-                    manaHBox.getChildren().add(new ImageView(symbols.get("CHAOS")));
-                }
+        for(FuzzyMatcher.Match match : fuzzyMatcher.find(filter.getText(), 3)){
+            if(match.getConfidence() >= suggestionConfidence){
+                String name = match.getCard().getName();
+                Hyperlink link = new Hyperlink("Did you mean " + name + "?");
+                link.setOnAction(e -> {
+                    searchTextBox.setText(name);
+                    requestSearch(scene, 0);
+                });
+                box.getChildren().add(link);
             }
-
-            borderPane.setLeft(cardLabel);
-            borderPane.setCenter(setCodeLabel);
-            borderPane.setRight(manaHBox);
-            listView.getItems().add(borderPane);
-        });
-
-        listView.getSelectionModel().selectFirst();
-        updateCardPreview(listView, cards);
-    }
-
-    private void updateDeckCardListView(ListView listView, HashMap<CardData, Integer> cards, int index){
-        updateDeckCardListView(listView, cards);
-        listView.getSelectionModel().select(index);
-        updateCardPreview(listView, cards);
+        }
+        return box;
     }
 
-    private void updateDeckCardListView(ListView listView, HashMap<CardData, Integer> cards){
-        listView.getItems().clear();
-
-        ArrayList<CardData> cardList = getSortedDeck(cards);
-
-        cardList.forEach(cardData->{
-            BorderPane borderPane = new BorderPane();
-            HBox manaHBox = new HBox();
-            Label cardCountLabel = new Label();
-            cardCountLabel.setPadding(new Insets(0, 8, 0, 8));
-            cardCountLabel.setMinWidth(48);
-            cardCountLabel.setTextAlignment(TextAlignment.RIGHT);
-            cardCountLabel.setText(Integer.toString(cards.get(cardData)));
-
-            Label cardLabel = new Label();
-            Label setCodeLabel = new Label();
-            setCodeLabel.setVisible(false);
-            setCodeLabel.setText(Integer.toString(cardList.indexOf(cardData)));
-
-            cardLabel.setText(cardData.getName());
-
-            Group group = new Group();
-            ImageView typeImageView = new ImageView();
-            group.getChildren().add(typeImageView);
-            cardLabel.setGraphic(group);
-
-            if(cardData.getTypes() != null && cardData.getTypes().length > 0) {
-                String mainType = cardData.getTypes()[0];
-                if (symbols.containsKey(mainType)) {
-                    typeImageView.setImage(symbols.get(mainType));
-                }
+    private SearchFilter getSearchFilter(){
+        // Every set box holds the ordinal of its set
+        BitSet sets = new BitSet(allSets.size());
+        for(CheckBox box : searchSetCB){
+            if(box.isSelected()){
+                sets.set((Integer) box.getUserData());
             }
+        }
 
-            if(rarityColor.containsKey(cardData.getRarity())){
-                Rectangle rect = new Rectangle(0, 0, 15, 15);
-                rect.setFill(rarityColor.get(cardData.getRarity()));
-                rect.setBlendMode(BlendMode.ADD);
-                group.getChildren().add(rect);
-            }
+        // The last mana box is "Multicolored", the others are in the order of CardSearchIndex.COLORS
+        return new SearchFilter(searchTextBox.getText(), searchRulesCheck.isSelected(), getSelectedMask(searchCostCB, searchCostCB.size()),
+                getSelectedMask(searchManaCB, searchManaCB.size() - 1), searchManaCB.get(searchManaCB.size() - 1).isSelected(),
+                getSelectedMask(searchRarityCB, searchRarityCB.size()), getSelectedMask(searchTypeCB, searchTypeCB.size()), sets);
+    }
 
-            Pattern pattern = Pattern.compile("\\{(.*?)\\}");
-            Matcher matcher = pattern.matcher(cardData.getManaCost());
-            while(matcher.find()){
-                String val = matcher.group(1).replaceAll("/", "");
-                if(symbols.containsKey(val)){
-                    manaHBox.getChildren().add(new ImageView(symbols.get(val)));
-                }else{
-                    manaHBox.getChildren().add(new ImageView(symbols.get("CHAOS")));
-                }
+    private int getSelectedMask(ArrayList<CheckBox> boxes, int count){
+        int mask = 0;
+        for(int i=0; i<count; i++){
+            if(boxes.get(i).isSelected()){
+                mask |= 1 << i;
             }
-
-            BorderPane borderPane2 = new BorderPane();
-            borderPane2.setLeft(cardCountLabel);
-            borderPane2.setCenter(cardLabel);
-
-            borderPane.setLeft(borderPane2);
-            borderPane.setCenter(setCodeLabel);
-            borderPane.setRight(manaHBox);
-            listView.getItems().add(borderPane);
-        });
-
-        int count = 0;
-        for(int i : cards.values()){
-            count += i;
         }
+        return mask;
+    }
+
+    /**
+     * Shows the number of cards of a section in its tab.
+     */
+    private void updateDeckTab(ListView<DeckEntry> listView, DeckSection section){
+        int count = section.getTotalCount();
 
         for(Tab tab : deckTabPane.getTabs()){
             if(tab.getContent() == listView.getParent()){
@@ -1490,8 +1540,6 @@ public class Main extends Application {
                 tab.setText(str);
             }
         }
-
-        updateCardPreview(listView, cards);
     }
 
     private void loadAllImages(HashMap<String, Image> symbols, String dir) throws IOException {
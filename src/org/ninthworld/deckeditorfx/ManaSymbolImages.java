@@ -0,0 +1,32 @@
+package org.ninthworld.deckeditorfx;
+
+import javafx.scene.image.Image;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Symbol images by ManaSymbols id, shared by every row that shows a mana cost. An id is looked up by name once,
+ * symbols without an image are shown as CHAOS. Only used on the FX thread.
+ */
+public class ManaSymbolImages {
+
+    private final HashMap<String, Image> symbols;
+    private Image[] images = new Image[0];
+
+    public ManaSymbolImages(HashMap<String, Image> symbols){
+        this.symbols = symbols;
+    }
+
+    public Image get(byte symbol){
+        int id = symbol & 0xFF;
+        if(id >= images.length){
+            images = Arrays.copyOf(images, Math.max(id + 1, ManaSymbols.getCount()));
+        }
+        if(images[id] == null){
+            String name = ManaSymbols.getName(symbol);
+            images[id] = symbols.containsKey(name) ? symbols.get(name) : symbols.get("CHAOS");
+        }
+        return images[id];
+    }
+}
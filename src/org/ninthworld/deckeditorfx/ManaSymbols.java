@@ -0,0 +1,79 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared table of mana symbols. A mana cost like {2}{W/U} is parsed once into the ids of its symbols, named like the
+ * symbol images without the slash ("2", "WU"). Equal costs share one id array, which must not be modified.
+ *
+ * Like CardDictionary, lookups of known costs don't lock, so loaders running on several threads only contend when
+ * they add a new cost.
+ */
+public class ManaSymbols {
+
+    private static final byte[] NONE = new byte[0];
+    private static final ConcurrentHashMap<String, byte[]> costs = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static final ArrayList<String> names = new ArrayList<>();
+
+    public static byte[] parse(String manaCost){
+        if(manaCost == null || manaCost.isEmpty()){
+            return NONE;
+        }
+
+        byte[] symbols = costs.get(manaCost);
+        return symbols != null ? symbols : add(manaCost);
+    }
+
+    private static synchronized byte[] add(String manaCost){
+        byte[] symbols = costs.get(manaCost);
+        if(symbols == null){
+            byte[] parsed = new byte[manaCost.length() / 2 + 1];
+            int count = 0;
+            StringBuilder name = new StringBuilder();
+            for(int start = manaCost.indexOf('{'); start >= 0; start = manaCost.indexOf('{', start + 1)){
+                int end = manaCost.indexOf('}', start);
+                if(end < 0){
+                    break;
+                }
+                name.setLength(0);
+                for(int i=start+1; i<end; i++){
+                    if(manaCost.charAt(i) != '/'){
+                        name.append(manaCost.charAt(i));
+                    }
+                }
+                parsed[count++] = (byte) id(name.toString());
+                start = end;
+            }
+            symbols = Arrays.copyOf(parsed, count);
+            costs.put(manaCost, symbols);
+        }
+        return symbols;
+    }
+
+    private static int id(String name){
+        Integer id = ids.get(name);
+        if(id == null){
+            if(names.size() == 256){
+                throw new IllegalStateException("More than 256 mana symbols");
+            }
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Name of a symbol id from parse, which is stored as a byte.
+     */
+    public static synchronized String getName(byte id){
+        return names.get(id & 0xFF);
+    }
+
+    public static synchronized int getCount(){
+        return names.size();
+    }
+}
@@ -0,0 +1,122 @@
+package org.ninthworld.deckeditorfx;
+
+/**
+ * Flyweight CardData backed by a record in a CardStore. Only the store and the record index are kept on the heap,
+ * every getter decodes its value from the mapped snapshot when it is called. The mana symbols are the exception,
+ * they are parsed on first use and kept like in CardData.
+ */
+public class MappedCardData extends CardData {
+
+    private static final int SET_CODE = 0, NAME = 1, MANA_COST = 2, TYPE = 3, RARITY = 4, TEXT = 5, POWER = 6,
+            TOUGHNESS = 7, MULTIVERSE_ID = 8, NAMES = 9, COLORS = 10, COLOR_IDENTITY = 11, SUPERTYPES = 12, TYPES = 13,
+            SUBTYPES = 14, VARIATIONS = 15, CMC = 16;
+
+    private final CardStore store;
+    private final int index;
+
+    public MappedCardData(CardStore store, int index){
+        this.store = store;
+        this.index = index;
+    }
+
+    private String string(int field){
+        return store.getString(store.getCardField(index, field));
+    }
+
+    private String[] array(int field){
+        return store.getArray(store.getCardField(index, field));
+    }
+
+    @Override
+    public String getSetCode() {
+        return string(SET_CODE);
+    }
+
+    @Override
+    public String getNameUnmodified() {
+        return string(NAME);
+    }
+
+    /**
+     * Not kept like in CardData, the name is decoded again on every call.
+     */
+    @Override
+    public String getName() {
+        return joinNames(getNames(), getNameUnmodified());
+    }
+
+    @Override
+    public String getManaCost() {
+        return string(MANA_COST);
+    }
+
+    @Override
+    public String getType() {
+        return string(TYPE);
+    }
+
+    @Override
+    public String getRarity() {
+        return string(RARITY);
+    }
+
+    @Override
+    public String getText() {
+        return string(TEXT);
+    }
+
+    @Override
+    public String getPower() {
+        return string(POWER);
+    }
+
+    @Override
+    public String getToughness() {
+        return string(TOUGHNESS);
+    }
+
+    @Override
+    public String getMultiverseId() {
+        return string(MULTIVERSE_ID);
+    }
+
+    @Override
+    public String[] getNames() {
+        return array(NAMES);
+    }
+
+    @Override
+    public String[] getColors() {
+        return array(COLORS);
+    }
+
+    @Override
+    public String[] getColorIdentity() {
+        return array(COLOR_IDENTITY);
+    }
+
+    @Override
+    public String[] getSupertypes() {
+        return array(SUPERTYPES);
+    }
+
+    @Override
+    public String[] getTypes() {
+        return array(TYPES);
+    }
+
+    @Override
+    public String[] getSubtypes() {
+        return array(SUBTYPES);
+    }
+
+    @Override
+    public String[] getVariations() {
+        return array(VARIATIONS);
+    }
+
+    @Override
+    public int getCmc() {
+        return store.getCardField(index, CMC);
+    }
+}
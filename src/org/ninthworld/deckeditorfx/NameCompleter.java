@@ -0,0 +1,141 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Completes card names from a prefix. The distinct names are sorted by their lower case key, which lays the prefix
+ * trie out flat: the names below any trie node are one contiguous range, found with two binary searches. A max
+ * segment tree over the name weights then picks the k heaviest names of the range without looking at the others.
+ *
+ * A name weighs its number of printings, and every recordUse adds USE_WEIGHT, so cards that were added to a deck
+ * come first.
+ */
+public class NameCompleter {
+
+    private static final int USE_WEIGHT = 100;
+
+    private final String[] names, keys;
+    private final int[] weights;
+    private final int[] tree;
+    private final HashMap<String, Integer> positions;
+
+    public NameCompleter(List<CardData> cards){
+        HashMap<String, Integer> printings = new HashMap<>();
+        HashMap<String, String> displayNames = new HashMap<>();
+        for(CardData cardData : cards){
+            String name = cardData.getName();
+            String key = name.toLowerCase();
+            printings.merge(key, 1, Integer::sum);
+            displayNames.putIfAbsent(key, name);
+        }
+
+        this.keys = printings.keySet().toArray(new String[printings.size()]);
+        Arrays.sort(keys);
+        this.names = new String[keys.length];
+        this.weights = new int[keys.length];
+        this.positions = new HashMap<>(keys.length * 2);
+        for(int i=0; i<keys.length; i++){
+            names[i] = displayNames.get(keys[i]);
+            weights[i] = printings.get(keys[i]);
+            positions.put(keys[i], i);
+        }
+
+        this.tree = new int[keys.length * 2];
+        for(int i=0; i<keys.length; i++){
+            tree[keys.length + i] = i;
+        }
+        for(int node = keys.length - 1; node > 0; node--){
+            tree[node] = heavier(tree[node * 2], tree[node * 2 + 1]);
+        }
+    }
+
+    /**
+     * Up to k names starting with prefix, heaviest first and alphabetical among equal weights.
+     */
+    public List<String> complete(String prefix, int k){
+        String key = prefix.toLowerCase();
+        int from = lowerBound(key);
+        int to = from, high = keys.length;
+        while(to < high){
+            int mid = (to + high) >>> 1;
+            if(keys[mid].startsWith(key)){
+                to = mid + 1;
+            }else{
+                high = mid;
+            }
+        }
+
+        ArrayList<String> completions = new ArrayList<>(k);
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((range1, range2) -> heavier(range1[2], range2[2]) == range1[2] ? -1 : 1);
+        if(from < to){
+            ranges.add(new int[]{from, to, heaviest(from, to)});
+        }
+        while(completions.size() < k && !ranges.isEmpty()){
+            int[] range = ranges.poll();
+            int best = range[2];
+            completions.add(names[best]);
+            if(range[0] < best){
+                ranges.add(new int[]{range[0], best, heaviest(range[0], best)});
+            }
+            if(best + 1 < range[1]){
+                ranges.add(new int[]{best + 1, range[1], heaviest(best + 1, range[1])});
+            }
+        }
+        return completions;
+    }
+
+    /**
+     * Moves the name up in the completions, e.g. when the card is added to a deck.
+     */
+    public void recordUse(String name){
+        Integer position = positions.get(name.toLowerCase());
+        if(position == null){
+            return;
+        }
+
+        weights[position] += USE_WEIGHT;
+        for(int node = (position + keys.length) / 2; node > 0; node /= 2){
+            tree[node] = heavier(tree[node * 2], tree[node * 2 + 1]);
+        }
+    }
+
+    private int lowerBound(String key){
+        int low = 0, high = keys.length;
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(keys[mid].compareTo(key) < 0){
+                low = mid + 1;
+            }else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index of the heaviest name in [from, to).
+     */
+    private int heaviest(int from, int to){
+        int best = from;
+        for(int low = from + keys.length, high = to + keys.length; low < high; low /= 2, high /= 2){
+            if((low & 1) == 1){
+                best = heavier(best, tree[low++]);
+            }
+            if((high & 1) == 1){
+                best = heavier(best, tree[--high]);
+            }
+        }
+        return best;
+    }
+
+    private int heavier(int index1, int index2){
+        if(weights[index1] != weights[index2]){
+            return weights[index1] > weights[index2] ? index1 : index2;
+        }
+        return Math.min(index1, index2);
+    }
+}
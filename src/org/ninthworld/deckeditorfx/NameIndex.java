@@ -0,0 +1,115 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Trigram inverted index over lower case card names. A substring query of three or more characters only looks at
+ * the cards that contain every trigram of the query, and those candidates are then checked with contains.
+ */
+public class NameIndex {
+
+    private final String[] names;
+    private final HashMap<Long, int[]> postings;
+
+    public NameIndex(String[] names){
+        this.names = names;
+
+        HashMap<Long, IntList> building = new HashMap<>();
+        for(int i=0; i<names.length; i++){
+            String name = names[i];
+            for(int j=0; j+3<=name.length(); j++){
+                Long trigram = trigram(name, j);
+                IntList list = building.get(trigram);
+                if(list == null){
+                    list = new IntList();
+                    building.put(trigram, list);
+                }
+                if(list.size == 0 || list.values[list.size - 1] != i){
+                    list.add(i);
+                }
+            }
+        }
+
+        this.postings = new HashMap<>(building.size() * 2);
+        building.forEach((trigram, list) -> postings.put(trigram, Arrays.copyOf(list.values, list.size)));
+    }
+
+    /**
+     * Clears every bit of candidates whose name does not contain text.
+     */
+    public void filter(String text, BitSet candidates){
+        if(text.isEmpty()){
+            return;
+        }
+
+        if(text.length() < 3){
+            scan(text, candidates);
+            return;
+        }
+
+        ArrayList<int[]> lists = new ArrayList<>();
+        for(int j=0; j+3<=text.length(); j++){
+            int[] list = postings.get(trigram(text, j));
+            if(list == null){
+                candidates.clear();
+                return;
+            }
+            if(!lists.contains(list)){
+                lists.add(list);
+            }
+        }
+        lists.sort((list1, list2) -> Integer.compare(list1.length, list2.length));
+
+        // A refined search usually has fewer candidates left than the postings would visit
+        int[] shortest = lists.get(0);
+        if(candidates.cardinality() <= shortest.length){
+            scan(text, candidates);
+            return;
+        }
+
+        BitSet matches = new BitSet(names.length);
+        PostingLoop:
+        for(int i : shortest){
+            if(!candidates.get(i)){
+                continue;
+            }
+            for(int l=1; l<lists.size(); l++){
+                if(Arrays.binarySearch(lists.get(l), i) < 0){
+                    continue PostingLoop;
+                }
+            }
+            if(names[i].contains(text)){
+                matches.set(i);
+            }
+        }
+
+        candidates.and(matches);
+    }
+
+    private void scan(String text, BitSet candidates){
+        for(int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)){
+            if(!names[i].contains(text)){
+                candidates.clear(i);
+            }
+        }
+    }
+
+    private static Long trigram(String str, int start){
+        return ((long) str.charAt(start) << 32) | ((long) str.charAt(start + 1) << 16) | str.charAt(start + 2);
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        private void add(int value){
+            if(size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
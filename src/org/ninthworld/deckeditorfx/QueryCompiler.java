@@ -0,0 +1,519 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the search syntax of the search box into a plan over the bitsets of a CardSearchIndex:
+ *
+ *   t:creature              type line has a word containing creature, so t:leg finds Legendary
+ *   c:rg c=rg c<=rg         color identity includes / is exactly / is within the colors (wubrg), c:c colorless,
+ *                           c:m multicolored
+ *   cmc<3 cmc>=5 mv=2       converted mana cost, with : = != < <= > >=
+ *   o:flying o:"draw a card" rules text, without the type line
+ *   r:rare r>=u             rarity, ordered common, uncommon, rare, mythic
+ *   s:lea                   set code
+ *
+ * Other words must be in the card name. A - in front of a part excludes it, | or "or" between two parts matches
+ * either of them, and parentheses group. Everything but the name words is evaluated to one bitset when the query is
+ * compiled, and the remaining parts of an AND are ordered by how many cards they are expected to keep, so the name
+ * words run on the fewest candidates. Compiled queries are cached by their text.
+ */
+public class QueryCompiler {
+
+    private static final Pattern QUERY = Pattern.compile("(^|[\\s(-])(t|type|c|ci|id|color|identity|cmc|mv|o|oracle|r|rarity|s|set|e)(:|=|!=|<|>)");
+    private static final List<String> KEYS = Arrays.asList("t", "type", "c", "ci", "id", "color", "identity", "cmc", "mv", "o", "oracle", "r", "rarity", "s", "set", "e");
+    private static final String[] OPERATORS = {"!=", "<=", ">=", ":", "=", "<", ">"};
+    private static final int CACHE_SIZE = 64;
+
+    private final CardSearchIndex index;
+    private final int cardCount;
+    private final LinkedHashMap<String, Query> cache = new LinkedHashMap<String, Query>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Query> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public QueryCompiler(CardSearchIndex index){
+        this.index = index;
+        this.cardCount = index.getCardCount();
+    }
+
+    /**
+     * True if the text uses any of the keys, plain text is left to the name search.
+     */
+    public static boolean isQuery(String text){
+        return QUERY.matcher(text.toLowerCase()).find();
+    }
+
+    public synchronized Query compile(String text){
+        String key = text.toLowerCase();
+        Query query = cache.get(key);
+        if(query == null){
+            Node node = new Parser(key).parse();
+            query = new Query(node == null ? null : node.optimize());
+            cache.put(key, query);
+        }
+        return query;
+    }
+
+    public static class Query {
+        private final Node root;
+
+        private Query(Node root){
+            this.root = root;
+        }
+
+        /**
+         * Clears every bit of candidates whose card doesn't match the query.
+         */
+        public void filter(BitSet candidates){
+            if(root != null){
+                root.filter(candidates);
+            }
+        }
+    }
+
+    private BitSet all(){
+        BitSet bits = new BitSet(cardCount);
+        bits.set(0, cardCount);
+        return bits;
+    }
+
+    private BitSet not(BitSet bits){
+        BitSet result = all();
+        result.andNot(bits);
+        return result;
+    }
+
+    private BitSet compileTerm(String key, String op, String value){
+        if(value.isEmpty()){
+            return all();
+        }
+
+        switch(key){
+            case "t": case "type": {
+                ArrayList<String> words = new ArrayList<>();
+                TextIndex.tokenize(value, words);
+                BitSet result = all();
+                for(String word : words){
+                    BitSet matches = new BitSet(cardCount);
+                    index.getTypeLineBits().forEach((typeWord, bits) -> {
+                        if(typeWord.contains(word)){
+                            matches.or(bits);
+                        }
+                    });
+                    result.and(matches);
+                }
+                return op.equals("!=") ? not(result) : result;
+            }
+            case "c": case "ci": case "id": case "color": case "identity":
+                return compileColors(op, value);
+            case "cmc": case "mv": {
+                int cmc;
+                try {
+                    cmc = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    return new BitSet();
+                }
+                BitSet result = new BitSet(cardCount);
+                index.getCmcBits().forEach((cardCmc, bits) -> {
+                    if(compare(Integer.compare(cardCmc, cmc), op)){
+                        result.or(bits);
+                    }
+                });
+                return result;
+            }
+            case "o": case "oracle": {
+                ArrayList<String> words = new ArrayList<>();
+                TextIndex.tokenize(value, words);
+                BitSet result = words.isEmpty() ? all() : index.getTextIndex().searchRules(words);
+                return op.equals("!=") ? not(result) : result;
+            }
+            case "r": case "rarity": {
+                int rarity = -1;
+                for(int i=0; i<CardSearchIndex.RARITIES.length; i++){
+                    if(CardSearchIndex.RARITIES[i].toLowerCase().startsWith(value)){
+                        rarity = i;
+                    }
+                }
+                BitSet result = new BitSet(cardCount);
+                for(int i=0; i<CardSearchIndex.RARITIES.length && rarity >= 0; i++){
+                    if(compare(Integer.compare(i, rarity), op)){
+                        result.or(index.getRarityBits(i));
+                    }
+                }
+                return result;
+            }
+            default: {
+                BitSet result = index.getSetBits(value);
+                return op.equals("!=") ? not(result) : result;
+            }
+        }
+    }
+
+    private BitSet compileColors(String op, String value){
+        if(value.equals("m") || value.startsWith("multi")){
+            BitSet result = (BitSet) index.getMulticoloredBits().clone();
+            return op.equals("!=") ? not(result) : result;
+        }
+
+        // Bits in the order of CardSearchIndex.COLORS, bit 0 is colorless
+        int mask = 0;
+        String[] names = {"colorless", "green", "blue", "red", "black", "white"};
+        for(int i=0; i<names.length; i++){
+            if(value.equals(names[i])){
+                mask = 1 << i;
+            }
+        }
+        if(mask == 0){
+            for(int i=0; i<value.length(); i++){
+                int color = "cgurbw".indexOf(value.charAt(i));
+                if(color < 0){
+                    return new BitSet();
+                }
+                mask |= 1 << color;
+            }
+        }
+
+        BitSet includes = all(), within = all();
+        for(int i=1; i<CardSearchIndex.COLORS.length; i++){
+            if((mask & (1 << i)) != 0){
+                includes.and(index.getColorBits(i));
+            }else{
+                within.andNot(index.getColorBits(i));
+            }
+        }
+        if(mask == 1){
+            includes = (BitSet) index.getColorBits(0).clone();
+        }
+        BitSet exactly = (BitSet) includes.clone();
+        exactly.and(within);
+
+        switch(op){
+            case "=":
+                return exactly;
+            case "!=":
+                return not(exactly);
+            case "<=":
+                return within;
+            case "<":
+                within.andNot(exactly);
+                return within;
+            case ">":
+                includes.andNot(exactly);
+                return includes;
+            default:
+                return includes;
+        }
+    }
+
+    /**
+     * Whether a comparison result of card value against query value satisfies the operator, : means =.
+     */
+    private static boolean compare(int comparison, String op){
+        switch(op){
+            case "!=": return comparison != 0;
+            case "<": return comparison < 0;
+            case "<=": return comparison <= 0;
+            case ">": return comparison > 0;
+            case ">=": return comparison >= 0;
+            default: return comparison == 0;
+        }
+    }
+
+    private abstract class Node {
+        /**
+         * Clears every bit of candidates that doesn't match.
+         */
+        abstract void filter(BitSet candidates);
+
+        /**
+         * Number of cards expected to match.
+         */
+        abstract int estimate();
+
+        Node optimize(){
+            return this;
+        }
+    }
+
+    private class BitsNode extends Node {
+        private final BitSet bits;
+        private final int cardinality;
+
+        private BitsNode(BitSet bits){
+            this.bits = bits;
+            this.cardinality = bits.cardinality();
+        }
+
+        void filter(BitSet candidates){
+            candidates.and(bits);
+        }
+
+        int estimate(){
+            return cardinality;
+        }
+    }
+
+    private class NameNode extends Node {
+        private final String text;
+
+        private NameNode(String text){
+            this.text = text;
+        }
+
+        void filter(BitSet candidates){
+            index.getNameIndex().filter(text, candidates);
+        }
+
+        int estimate(){
+            // Unknown before it runs, and the most expensive per candidate
+            return cardCount;
+        }
+    }
+
+    private class NotNode extends Node {
+        private final Node node;
+
+        private NotNode(Node node){
+            this.node = node;
+        }
+
+        void filter(BitSet candidates){
+            BitSet matches = (BitSet) candidates.clone();
+            node.filter(matches);
+            candidates.andNot(matches);
+        }
+
+        int estimate(){
+            return node instanceof NameNode ? cardCount : cardCount - node.estimate();
+        }
+
+        Node optimize(){
+            Node optimized = node.optimize();
+            if(optimized instanceof BitsNode){
+                return new BitsNode(not(((BitsNode) optimized).bits));
+            }else if(optimized instanceof NotNode){
+                return ((NotNode) optimized).node;
+            }
+            return new NotNode(optimized);
+        }
+    }
+
+    private class BooleanNode extends Node {
+        private final boolean and;
+        private final List<Node> nodes;
+
+        private BooleanNode(boolean and, List<Node> nodes){
+            this.and = and;
+            this.nodes = nodes;
+        }
+
+        void filter(BitSet candidates){
+            if(and){
+                for(Node node : nodes){
+                    node.filter(candidates);
+                    if(candidates.isEmpty()){
+                        return;
+                    }
+                }
+            }else{
+                BitSet matches = new BitSet(cardCount);
+                for(Node node : nodes){
+                    BitSet nodeMatches = (BitSet) candidates.clone();
+                    node.filter(nodeMatches);
+                    matches.or(nodeMatches);
+                }
+                candidates.and(matches);
+            }
+        }
+
+        int estimate(){
+            int estimate = and ? cardCount : 0;
+            for(Node node : nodes){
+                estimate = and ? Math.min(estimate, node.estimate()) : Math.min(cardCount, estimate + node.estimate());
+            }
+            return estimate;
+        }
+
+        /**
+         * Flattens nested nodes of the same kind, folds every bitset child into one and orders the rest.
+         */
+        Node optimize(){
+            BitSet folded = null;
+            ArrayList<Node> rest = new ArrayList<>();
+            ArrayList<Node> pending = new ArrayList<>(nodes);
+            while(!pending.isEmpty()){
+                Node node = pending.remove(0).optimize();
+                if(node instanceof BooleanNode && ((BooleanNode) node).and == and){
+                    pending.addAll(((BooleanNode) node).nodes);
+                }else if(node instanceof BitsNode){
+                    BitSet bits = ((BitsNode) node).bits;
+                    if(folded == null){
+                        folded = (BitSet) bits.clone();
+                    }else if(and){
+                        folded.and(bits);
+                    }else{
+                        folded.or(bits);
+                    }
+                }else{
+                    rest.add(node);
+                }
+            }
+
+            rest.sort((node1, node2) -> Integer.compare(node1.estimate(), node2.estimate()));
+            if(folded != null){
+                rest.add(0, new BitsNode(folded));
+            }
+            return rest.size() == 1 ? rest.get(0) : new BooleanNode(and, rest);
+        }
+    }
+
+    /**
+     * or := and (('|' | "or") and)*, and := unary+, unary := '-' unary | '(' or ')' | '"' name '"' | key op value | word
+     */
+    private class Parser {
+        private final String query;
+        private int pos = 0;
+
+        private Parser(String query){
+            this.query = query;
+        }
+
+        private Node parse(){
+            Node node = parseOr();
+            while(pos < query.length()){
+                // Stray closing parenthesis, skip it and keep going
+                pos++;
+                Node rest = parseOr();
+                if(rest != null){
+                    node = node == null ? rest : new BooleanNode(true, new ArrayList<>(Arrays.asList(node, rest)));
+                }
+            }
+            return node;
+        }
+
+        private Node parseOr(){
+            ArrayList<Node> nodes = new ArrayList<>();
+            Node node = parseAnd();
+            if(node != null){
+                nodes.add(node);
+            }
+            while(skipOr()){
+                node = parseAnd();
+                if(node != null){
+                    nodes.add(node);
+                }
+            }
+            return nodes.isEmpty() ? null : nodes.size() == 1 ? nodes.get(0) : new BooleanNode(false, nodes);
+        }
+
+        private Node parseAnd(){
+            ArrayList<Node> nodes = new ArrayList<>();
+            while(true){
+                char c = peek();
+                if(c == 0 || c == ')' || isOr()){
+                    break;
+                }
+                Node node = parseUnary();
+                if(node != null){
+                    nodes.add(node);
+                }
+            }
+            return nodes.isEmpty() ? null : nodes.size() == 1 ? nodes.get(0) : new BooleanNode(true, nodes);
+        }
+
+        private Node parseUnary(){
+            char c = peek();
+            if(c == '-' && pos + 1 < query.length() && !Character.isWhitespace(query.charAt(pos + 1))){
+                pos++;
+                Node node = parseUnary();
+                return node == null ? null : new NotNode(node);
+            }else if(c == '('){
+                pos++;
+                Node node = parseOr();
+                if(peek() == ')'){
+                    pos++;
+                }
+                return node;
+            }else if(c == '"'){
+                String text = readQuoted();
+                return text.isEmpty() ? null : new NameNode(text);
+            }
+
+            int start = pos;
+            while(pos < query.length() && Character.isLetter(query.charAt(pos))){
+                pos++;
+            }
+            String key = query.substring(start, pos);
+            String op = null;
+            for(String operator : OPERATORS){
+                if(query.startsWith(operator, pos)){
+                    op = operator;
+                    break;
+                }
+            }
+            if(op != null && KEYS.contains(key)){
+                pos += op.length();
+                String value = pos < query.length() && query.charAt(pos) == '"' ? readQuoted() : readWord();
+                return new BitsNode(compileTerm(key, op, value.trim()));
+            }
+
+            pos = start;
+            String word = readWord();
+            if(word.isEmpty()){
+                // A character that can't start anything, e.g. a quote left over from the value of a key
+                pos++;
+                return null;
+            }
+            return new NameNode(word);
+        }
+
+        private String readQuoted(){
+            int end = query.indexOf('"', pos + 1);
+            if(end < 0){
+                end = query.length();
+            }
+            String text = query.substring(pos + 1, end);
+            pos = Math.min(end + 1, query.length());
+            return text;
+        }
+
+        private String readWord(){
+            int start = pos;
+            while(pos < query.length() && !Character.isWhitespace(query.charAt(pos)) && query.charAt(pos) != '(' && query.charAt(pos) != ')' && query.charAt(pos) != '"'){
+                pos++;
+            }
+            return query.substring(start, pos);
+        }
+
+        private boolean isOr(){
+            if(peek() == '|'){
+                return true;
+            }
+            return query.startsWith("or", pos) && (pos + 2 == query.length() || Character.isWhitespace(query.charAt(pos + 2)) || query.charAt(pos + 2) == '(');
+        }
+
+        private boolean skipOr(){
+            if(!isOr()){
+                return false;
+            }
+            pos += query.charAt(pos) == '|' ? 1 : 2;
+            return true;
+        }
+
+        private char peek(){
+            while(pos < query.length() && Character.isWhitespace(query.charAt(pos))){
+                pos++;
+            }
+            return pos < query.length() ? query.charAt(pos) : 0;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches a regular expression against the rules text of the candidate cards on the common fork/join pool. The card
+ * range is split in halves until a chunk has CHUNK_SIZE cards, each chunk keeps one Matcher for all of its cards.
+ *
+ * Once limit matches are found the remaining chunks stop, so with a limit the kept matches are not necessarily the
+ * first ones in card order.
+ *
+ * After filter the scan keeps its throughput stats, to show how it scales with the number of cores.
+ */
+public class RegexScan {
+
+    private static final int CHUNK_SIZE = 512;
+
+    private final List<CardData> cards;
+    private final Pattern pattern;
+    private final int limit;
+    private final AtomicInteger found = new AtomicInteger();
+    private final AtomicInteger scanned = new AtomicInteger();
+    private long elapsedNanos = 0;
+    private int parallelism = 0;
+
+    public RegexScan(List<CardData> cards, Pattern pattern, int limit){
+        this.cards = cards;
+        this.pattern = pattern;
+        this.limit = limit;
+    }
+
+    /**
+     * Clears every bit of candidates whose rules text has no match of the pattern.
+     */
+    public void filter(BitSet candidates){
+        long startTime = System.nanoTime();
+        parallelism = ForkJoinPool.commonPool().getParallelism();
+        BitSet matches = ForkJoinPool.commonPool().invoke(new ScanTask(candidates, 0, candidates.length()));
+        candidates.and(matches);
+        elapsedNanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Number of cards whose rules text was matched against the pattern.
+     */
+    public int getScanned() {
+        return scanned.get();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getCardsPerSecond(){
+        return elapsedNanos > 0 ? scanned.get() * 1000000000L / elapsedNanos : 0;
+    }
+
+    /**
+     * Threads of the common pool the scan ran on.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Whether the scan stopped early because limit matches were found.
+     */
+    public boolean isStoppedAtLimit(){
+        return found.get() >= limit;
+    }
+
+    @Override
+    public String toString() {
+        return "Regex scan: " + scanned.get() + " cards in " + elapsedNanos / 1000000 + " ms, " + getCardsPerSecond()
+                + " cards/s on " + parallelism + " threads" + (isStoppedAtLimit() ? ", stopped at " + limit + " matches" : "");
+    }
+
+    private class ScanTask extends RecursiveTask<BitSet> {
+        private static final long serialVersionUID = 1L;
+
+        private final BitSet candidates;
+        private final int from, to;
+
+        private ScanTask(BitSet candidates, int from, int to){
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BitSet compute(){
+            if(to - from > CHUNK_SIZE){
+                int mid = (from + to) >>> 1;
+                ScanTask left = new ScanTask(candidates, from, mid);
+                left.fork();
+                BitSet result = new ScanTask(candidates, mid, to).compute();
+                result.or(left.join());
+                return result;
+            }
+
+            BitSet result = new BitSet();
+            Matcher matcher = pattern.matcher("");
+            int count = 0;
+            for(int i = candidates.nextSetBit(from); i >= 0 && i < to; i = candidates.nextSetBit(i + 1)){
+                if(found.get() >= limit){
+                    break;
+                }
+                count++;
+                if(matcher.reset(cards.get(i).getText()).find() && found.getAndIncrement() < limit){
+                    result.set(i);
+                }
+            }
+            scanned.addAndGet(count);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used search results by filter. The size of an entry is estimated from the words of its bitset and
+ * the text and sets of its filter, and the oldest entries are dropped once the total goes over maxBytes.
+ *
+ * Searches use it on the search thread, the methods are synchronized so the stats can be read from any other thread.
+ */
+public class SearchCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<SearchFilter, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0, misses = 0, evictions = 0;
+
+    public SearchCache(long maxBytes){
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The cached result for the filter or null, the result must not be modified.
+     */
+    public synchronized BitSet get(SearchFilter filter){
+        Entry entry = entries.get(filter);
+        if(entry == null){
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    public synchronized void put(SearchFilter filter, BitSet result){
+        long size = 64 + filter.getRawText().length() * 2 + filter.getSets().size() / 8 + result.size() / 8;
+        if(size > maxBytes){
+            return;
+        }
+
+        Entry old = entries.put(filter, new Entry(result, size));
+        if(old != null){
+            bytes -= old.size;
+        }
+        bytes += size;
+
+        Iterator<Map.Entry<SearchFilter, Entry>> eldest = entries.entrySet().iterator();
+        while(bytes > maxBytes){
+            bytes -= eldest.next().getValue().size;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Search cache: " + entries.size() + " results, " + bytes / 1024 + " KB, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+
+    private static class Entry {
+        private final BitSet result;
+        private final long size;
+
+        private Entry(BitSet result, long size){
+            this.result = result;
+            this.size = size;
+        }
+    }
+}
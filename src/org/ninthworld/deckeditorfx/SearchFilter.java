@@ -0,0 +1,109 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.BitSet;
+
+/**
+ * Immutable snapshot of the search panel. Each facet is a bit mask in the order of the facets in CardSearchIndex,
+ * a set bit means the checkbox is selected. The selected sets are a bitset of set ordinals (see
+ * SetData.groupCardsBySet), so two filters with the same selection are equal no matter in which order the boxes were
+ * read.
+ */
+public class SearchFilter {
+
+    private final String text, rawText;
+    private final int costMask, colorMask, rarityMask, typeMask;
+    private final boolean multicolored, rulesText;
+    private final BitSet sets;
+
+    /**
+     * With rulesText the text is a TextIndex query or a /regex/ over the rules text, otherwise it is matched against
+     * the names.
+     */
+    public SearchFilter(String text, boolean rulesText, int costMask, int colorMask, boolean multicolored, int rarityMask, int typeMask, BitSet sets){
+        this.text = text.toLowerCase();
+        this.rawText = text;
+        this.rulesText = rulesText;
+        this.costMask = costMask;
+        this.colorMask = colorMask;
+        this.multicolored = multicolored;
+        this.rarityMask = rarityMask;
+        this.typeMask = typeMask;
+        this.sets = (BitSet) sets.clone();
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * The text as it was typed, regular expressions are case sensitive about escapes like \S.
+     */
+    public String getRawText() {
+        return rawText;
+    }
+
+    public boolean isRulesText() {
+        return rulesText;
+    }
+
+    public boolean isCostSelected(int bucket){
+        return (costMask & (1 << bucket)) != 0;
+    }
+
+    public boolean isColorSelected(int color){
+        return (colorMask & (1 << color)) != 0;
+    }
+
+    public boolean isMulticolored() {
+        return multicolored;
+    }
+
+    public boolean isRaritySelected(int rarity){
+        return (rarityMask & (1 << rarity)) != 0;
+    }
+
+    public boolean isTypeSelected(int type){
+        return (typeMask & (1 << type)) != 0;
+    }
+
+    /**
+     * Ordinals of the selected sets, a copy.
+     */
+    public BitSet getSets() {
+        return (BitSet) sets.clone();
+    }
+
+    /**
+     * True if both filters select the same checkboxes, the text may differ.
+     */
+    public boolean sameFacets(SearchFilter filter){
+        return rulesText == filter.rulesText && costMask == filter.costMask && colorMask == filter.colorMask && multicolored == filter.multicolored
+                && rarityMask == filter.rarityMask && typeMask == filter.typeMask && sets.equals(filter.sets);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof SearchFilter)){
+            return false;
+        }
+
+        SearchFilter filter = (SearchFilter) o;
+        return rawText.equals(filter.rawText) && sameFacets(filter);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = rawText.hashCode();
+        result = 31 * result + (rulesText ? 1 : 0);
+        result = 31 * result + costMask;
+        result = 31 * result + colorMask;
+        result = 31 * result + (multicolored ? 1 : 0);
+        result = 31 * result + rarityMask;
+        result = 31 * result + typeMask;
+        result = 31 * result + sets.hashCode();
+        return result;
+    }
+}
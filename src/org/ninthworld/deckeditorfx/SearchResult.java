@@ -0,0 +1,62 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * The cards matching a search, in a SortOrder or by relevance. The count is known right away, but cards are only
+ * looked up a page at a time, so a broad search costs as much as the rows that are shown.
+ */
+public class SearchResult {
+
+    private final BitSet result;
+    private final int size;
+    private final CardOrdering ordering;
+    private final SortOrder order;
+    private final int[] ranked;
+
+    /**
+     * The cards of result in the given order. The result must not be modified afterwards.
+     */
+    public SearchResult(BitSet result, CardOrdering ordering, SortOrder order){
+        this.result = result;
+        this.size = result.cardinality();
+        this.ordering = ordering;
+        this.order = order;
+        this.ranked = null;
+    }
+
+    /**
+     * The cards at the indices of ranked, in that order.
+     */
+    public SearchResult(int[] ranked, CardOrdering ordering){
+        this.result = null;
+        this.size = ranked.length;
+        this.ordering = ordering;
+        this.order = null;
+        this.ranked = ranked;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Up to limit cards starting at position offset.
+     */
+    public ArrayList<CardData> getPage(int offset, int limit){
+        ArrayList<CardData> page = new ArrayList<>();
+        if(ranked != null){
+            for(int i=offset; i<size && i-offset<limit; i++){
+                page.add(ordering.getCard(ranked[i]));
+            }
+        }else{
+            ordering.getCards(result, order, offset, limit, page);
+        }
+        return page;
+    }
+}
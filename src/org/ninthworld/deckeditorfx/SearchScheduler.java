@@ -0,0 +1,105 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs searches on a background thread. A search waits for its delay first, so a burst of key presses only runs the
+ * last one, and a newer search cancels the one before it. Every search gets a generation number and its result is
+ * only published if no newer search was submitted in the meantime.
+ *
+ * Results come in the chosen SortOrder, except that TextIndex searches in NAME order are ordered by relevance.
+ * Changing only the order hits the SearchCache, so it just gathers the cards again.
+ */
+public class SearchScheduler {
+
+    private final SearchSession session;
+    private final CardSearchIndex index;
+    private final CardOrdering ordering;
+    private final ScheduledExecutorService executor;
+    private final Executor publisher;
+
+    private ScheduledFuture<?> pending;
+    private SearchFilter lastFilter;
+    private SortOrder lastOrder;
+    private long generation = 0;
+
+    /**
+     * Results are published through publisher, which must run them on the thread that submits the searches,
+     * e.g. Platform::runLater for the FX thread.
+     */
+    public SearchScheduler(SearchSession session, CardSearchIndex index, CardOrdering ordering, Executor publisher){
+        this.session = session;
+        this.index = index;
+        this.ordering = ordering;
+        this.publisher = publisher;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "card-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Must be called on the publishing thread, onResult is called there too with the cards matching the filter.
+     * Cards are only looked up when a page of the result is asked for.
+     */
+    public void submit(SearchFilter filter, SortOrder order, long delayMillis, Consumer<SearchResult> onResult){
+        if(filter.equals(lastFilter) && order == lastOrder){
+            return;
+        }
+        lastFilter = filter;
+        lastOrder = order;
+
+        long searchGeneration = ++generation;
+        if(pending != null){
+            pending.cancel(true);
+        }
+        pending = executor.schedule(() -> {
+            boolean published = false;
+            try {
+                BitSet result = session.search(filter);
+                if(Thread.currentThread().isInterrupted()){
+                    return;
+                }
+
+                SearchResult searchResult;
+                if(order == SortOrder.NAME && CardSearchIndex.isRanked(filter)){
+                    int[] ranked = index.rank(filter, result);
+                    if(Thread.currentThread().isInterrupted()){
+                        return;
+                    }
+                    searchResult = new SearchResult(ranked, ordering);
+                }else{
+                    searchResult = new SearchResult(result, ordering, order);
+                }
+                publisher.execute(() -> {
+                    if(searchGeneration == generation){
+                        onResult.accept(searchResult);
+                    }
+                });
+                published = true;
+            } catch (Throwable e) {
+                // A failed search would otherwise vanish into the future. This includes errors such as a
+                // StackOverflowError from a pathological regex.
+                e.printStackTrace();
+            } finally {
+                // Submitting the same filter again has to retry a search that published nothing instead of
+                // being skipped as a duplicate
+                if(!published){
+                    publisher.execute(() -> {
+                        if(searchGeneration == generation){
+                            lastFilter = null;
+                            lastOrder = null;
+                        }
+                    });
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
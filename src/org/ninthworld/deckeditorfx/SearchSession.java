@@ -0,0 +1,90 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+/**
+ * Runs the searches of one search panel and remembers the last results. While the checkboxes stay the same, a text
+ * that contains an earlier text can only match a subset of its cards, so typing only filters the previous result and
+ * a backspace goes back to a result that is still on the stack. Rules text and compiled queries are always run in
+ * full. Every result also goes into a SearchCache, so toggling a checkbox back returns the earlier result.
+ */
+public class SearchSession {
+
+    private static final int MAX_DEPTH = 32;
+
+    private final CardSearchIndex index;
+    private SearchFilter facetFilter;
+    private BitSet facetResult;
+    private final ArrayDeque<Refinement> refinements = new ArrayDeque<>();
+    private final SearchCache cache;
+
+    public SearchSession(CardSearchIndex index, long cacheBytes){
+        this.index = index;
+        this.cache = new SearchCache(cacheBytes);
+    }
+
+    /**
+     * The returned set may be shared with later searches and must not be modified.
+     */
+    public BitSet search(SearchFilter filter){
+        BitSet result = cache.get(filter);
+        if(result == null){
+            result = compute(filter);
+            cache.put(filter, result);
+        }
+        return result;
+    }
+
+    public SearchCache getCache() {
+        return cache;
+    }
+
+    private BitSet compute(SearchFilter filter){
+        if(facetFilter == null || !filter.sameFacets(facetFilter)){
+            facetFilter = filter;
+            facetResult = index.searchFacets(filter);
+            refinements.clear();
+        }
+
+        String text = filter.getText();
+        if(text.isEmpty()){
+            return facetResult;
+        }
+        if(filter.isRulesText() || QueryCompiler.isQuery(text)){
+            BitSet result = (BitSet) facetResult.clone();
+            if(filter.isRulesText()){
+                index.filterRules(filter.getRawText(), result);
+            }else{
+                index.filterText(text, result);
+            }
+            return result;
+        }
+
+        while(!refinements.isEmpty() && !text.contains(refinements.peek().text)){
+            refinements.pop();
+        }
+        if(!refinements.isEmpty() && refinements.peek().text.equals(text)){
+            return refinements.peek().result;
+        }
+
+        BitSet result = (BitSet) (refinements.isEmpty() ? facetResult : refinements.peek().result).clone();
+        index.filterText(text, result);
+
+        if(refinements.size() == MAX_DEPTH){
+            refinements.removeLast();
+        }
+        refinements.push(new Refinement(text, result));
+        return result;
+    }
+
+    private static class Refinement {
+        private final String text;
+        private final BitSet result;
+
+        private Refinement(String text, BitSet result){
+            this.text = text;
+            this.result = result;
+        }
+    }
+}
@@ -7,6 +7,11 @@ import org.json.simple.parser.ParseException;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 /**
  * Created by NinthWorld on 4/5/2016.
@@ -15,6 +20,7 @@ public class SetData {
 
     private String name, code, type, block;
     private int year, month, day;
+    private int ordinal;
 
     public SetData(){
         this.name = "";
@@ -33,6 +39,12 @@ public class SetData {
         }
     }
 
+    public void setDate(int year, int month, int day){
+        this.year = year;
+        this.month = month;
+        this.day = day;
+    }
+
     public boolean isDateOlder(SetData set){
         if(this.year < set.getYear()){
             return true;
@@ -93,6 +105,41 @@ public class SetData {
         return year;
     }
 
+    /**
+     * Position of the set in the set list, see groupCardsBySet.
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Numbers the sets in list order and lays the cards out set by set, sorted by name within a set, so that the
+     * cards of every set are one contiguous range of the list.
+     */
+    public static void groupCardsBySet(List<SetData> sets, List<CardData> cards){
+        HashMap<String, Integer> ordinals = new HashMap<>(sets.size() * 2);
+        ArrayList<ArrayList<CardData>> setCards = new ArrayList<>(sets.size());
+        for(int i=0; i<sets.size(); i++){
+            sets.get(i).setOrdinal(i);
+            ordinals.put(sets.get(i).getCode(), i);
+            setCards.add(new ArrayList<>());
+        }
+
+        for(CardData cardData : cards){
+            setCards.get(ordinals.get(cardData.getSetCode())).add(cardData);
+        }
+
+        cards.clear();
+        for(ArrayList<CardData> list : setCards){
+            list.sort((card1, card2) -> card1.getName().compareTo(card2.getName()));
+            cards.addAll(list);
+        }
+    }
+
     public static ArrayList<SetData> loadAllSets(InputStream file, ArrayList<SetData> sets, ArrayList<CardData> cards) throws IOException, ParseException {
         JSONParser parser = new JSONParser();
         JSONObject allSets = (JSONObject) parser.parse(new InputStreamReader(file));
@@ -231,4 +278,146 @@ public class SetData {
 
         return sets;
     }
+
+    /**
+     * Same result as loadAllSets, but reads the file token by token instead of building the whole JSON tree first.
+     */
+    public static ArrayList<SetData> loadAllSetsStreaming(InputStream file, ArrayList<SetData> sets, ArrayList<CardData> cards) throws IOException, ParseException {
+        AllSetsHandler handler = new AllSetsHandler();
+        JSONParser parser = new JSONParser();
+        parser.parse(new InputStreamReader(file), handler);
+        handler.collect(sets, cards);
+
+        return sets;
+    }
+
+    /**
+     * Same result as loadAllSets, but each set is parsed on its own by the common fork/join pool. The raw bytes are
+     * only scanned once on the calling thread to find where each set starts and ends; the JSON syntax characters are
+     * ASCII, so the split positions are valid for UTF-8 and the other ASCII based charsets.
+     */
+    public static ArrayList<SetData> loadAllSetsParallel(InputStream file, ArrayList<SetData> sets, ArrayList<CardData> cards) throws IOException, ParseException {
+        byte[] json = new byte[Math.max(file.available() + 1, 65536)];
+        int length = 0, n;
+        while((n = file.read(json, length, json.length - length)) != -1){
+            length += n;
+            if(length == json.length){
+                json = Arrays.copyOf(json, json.length * 2);
+            }
+        }
+
+        byte[] data = json;
+
+        ArrayList<String> setCodes = new ArrayList<>();
+        ArrayList<int[]> setRanges = new ArrayList<>();
+        splitSets(data, length, setCodes, setRanges);
+
+        // One list per set, filled by whichever thread parses that set
+        List<ArrayList<SetData>> setResults = new ArrayList<>(setCodes.size());
+        List<ArrayList<CardData>> cardResults = new ArrayList<>(setCodes.size());
+        for(int i=0; i<setCodes.size(); i++){
+            setResults.add(new ArrayList<>());
+            cardResults.add(new ArrayList<>());
+        }
+        AtomicReference<Exception> error = new AtomicReference<>();
+        IntStream.range(0, setCodes.size()).parallel().forEach(i -> {
+            try {
+                AllSetsHandler handler = new AllSetsHandler(setCodes.get(i));
+                int[] range = setRanges.get(i);
+                new JSONParser().parse(new InputStreamReader(new ByteArrayInputStream(data, range[0], range[1] - range[0])), handler);
+                handler.collect(setResults.get(i), cardResults.get(i));
+            } catch (IOException | ParseException e) {
+                error.compareAndSet(null, e);
+            }
+        });
+
+        if(error.get() instanceof ParseException){
+            throw (ParseException) error.get();
+        }else if(error.get() != null){
+            throw (IOException) error.get();
+        }
+
+        // Same order as the keySet of the JSONObject loadAllSets iterates
+        HashMap<String, Integer> order = new HashMap<>();
+        for(int i=0; i<setCodes.size(); i++){
+            order.put(setCodes.get(i), i);
+        }
+        for(String setCode : order.keySet()){
+            int i = order.get(setCode);
+            sets.addAll(setResults.get(i));
+            cards.addAll(cardResults.get(i));
+        }
+
+        return sets;
+    }
+
+    /**
+     * Finds the key and the [start, end) range of the value of every entry in the root object.
+     */
+    private static void splitSets(byte[] json, int length, ArrayList<String> keys, ArrayList<int[]> ranges) throws IOException, ParseException {
+        int i = skipWhitespace(json, length, 0);
+        if(i >= length || json[i] != '{'){
+            throw new ParseException(i, ParseException.ERROR_UNEXPECTED_CHAR, i < length ? (char) json[i] : null);
+        }
+        i = skipWhitespace(json, length, i + 1);
+
+        while(i < length && json[i] != '}'){
+            int keyEnd = skipValue(json, length, i);
+            keys.add((String) new JSONParser().parse(new InputStreamReader(new ByteArrayInputStream(json, i, keyEnd - i))));
+
+            i = skipWhitespace(json, length, keyEnd);
+            if(i >= length || json[i] != ':'){
+                throw new ParseException(i, ParseException.ERROR_UNEXPECTED_CHAR, i < length ? (char) json[i] : null);
+            }
+            int valueStart = skipWhitespace(json, length, i + 1);
+            int valueEnd = skipValue(json, length, valueStart);
+            ranges.add(new int[]{valueStart, valueEnd});
+
+            i = skipWhitespace(json, length, valueEnd);
+            if(i < length && json[i] == ','){
+                i = skipWhitespace(json, length, i + 1);
+            }
+        }
+    }
+
+    private static int skipWhitespace(byte[] json, int length, int i){
+        while(i < length && Character.isWhitespace(json[i])){
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index just past the JSON value starting at i. Only strings and brackets are tracked, the value
+     * itself is checked later by the parser.
+     */
+    private static int skipValue(byte[] json, int length, int i){
+        int depth = 0;
+        boolean inString = false;
+        for(; i < length; i++){
+            byte c = json[i];
+            if(inString){
+                if(c == '\\'){
+                    i++;
+                }else if(c == '"'){
+                    inString = false;
+                    if(depth == 0){
+                        return i + 1;
+                    }
+                }
+            }else if(depth == 0 && (c == ',' || c == '}' || c == ']' || Character.isWhitespace(c))){
+                return i;
+            }else if(c == '"'){
+                inString = true;
+            }else if(c == '{' || c == '['){
+                depth++;
+            }else if(c == '}' || c == ']'){
+                depth--;
+                if(depth == 0){
+                    return i + 1;
+                }
+            }
+        }
+        return i;
+    }
 }
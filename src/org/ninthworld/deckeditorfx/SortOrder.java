@@ -0,0 +1,19 @@
+package org.ninthworld.deckeditorfx;
+
+/**
+ * Orders of the search results, ties are broken by name.
+ */
+public enum SortOrder {
+    NAME("Name"), CMC("CMC"), COLOR("Color"), RARITY("Rarity"), SET_DATE("Set date");
+
+    private final String label;
+
+    SortOrder(String label){
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
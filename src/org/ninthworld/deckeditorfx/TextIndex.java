@@ -0,0 +1,422 @@
+package org.ninthworld.deckeditorfx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Positional inverted index over the type line and rules text of every card, bit i of a result stands for
+ * cards.get(i) like in CardSearchIndex.
+ *
+ * Queries are lower case words that must all appear. "Quoted words" must appear next to each other in that order,
+ * a | between two parts matches either of them, a - in front of a word, phrase or (group) excludes the cards
+ * matching it, and parentheses group. Matches are ranked with BM25 over the words that are not excluded.
+ */
+public class TextIndex {
+
+    private static final int FIELD_GAP = 1000;
+    private static final double K1 = 1.2, B = 0.75;
+
+    private final int docCount;
+    private final int[] docLengths;
+    private final double averageLength;
+    private final HashMap<String, Postings> postings;
+
+    public TextIndex(List<CardData> cards){
+        this.docCount = cards.size();
+        this.docLengths = new int[docCount];
+
+        HashMap<String, PostingsBuilder> building = new HashMap<>();
+        ArrayList<String> tokens = new ArrayList<>();
+        long totalLength = 0;
+        for(int i=0; i<docCount; i++){
+            CardData cardData = cards.get(i);
+
+            tokens.clear();
+            tokenize(cardData.getType(), tokens);
+            int typeLength = tokens.size();
+            tokenize(cardData.getText(), tokens);
+            docLengths[i] = tokens.size();
+            totalLength += tokens.size();
+
+            for(int t=0; t<tokens.size(); t++){
+                PostingsBuilder builder = building.get(tokens.get(t));
+                if(builder == null){
+                    builder = new PostingsBuilder();
+                    building.put(tokens.get(t), builder);
+                }
+                // Phrases can't run from the type line into the rules text
+                builder.add(i, t < typeLength ? t : t + FIELD_GAP);
+            }
+        }
+        this.averageLength = docCount > 0 ? (double) totalLength / docCount : 0;
+
+        this.postings = new HashMap<>(building.size() * 2);
+        building.forEach((term, builder) -> postings.put(term, builder.build()));
+    }
+
+    /**
+     * Words are runs of letters, digits and the characters +-/' so that +1/+1 and opponent's stay in one piece.
+     */
+    public static void tokenize(String text, List<String> tokens){
+        int start = -1;
+        for(int i=0; i<=text.length(); i++){
+            if(i < text.length() && isWordChar(text.charAt(i))){
+                if(start < 0){
+                    start = i;
+                }
+            }else if(start >= 0){
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c){
+        return Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '/' || c == '\'';
+    }
+
+    /**
+     * Cards matching the query; an empty query matches nothing.
+     */
+    public BitSet search(String query){
+        Node node = new QueryParser(query).parse();
+        return node == null ? new BitSet() : node.match();
+    }
+
+    /**
+     * Cards whose rules text, not counting the type line, contains the words next to each other in that order.
+     */
+    public BitSet searchRules(List<String> terms){
+        return terms.isEmpty() ? new BitSet() : matchPhrase(terms, FIELD_GAP);
+    }
+
+    /**
+     * Orders the cards of matches by their BM25 score for the query, best first; equal scores keep the card order.
+     */
+    public int[] rank(String query, BitSet matches){
+        Node node = new QueryParser(query).parse();
+        ArrayList<String> terms = new ArrayList<>();
+        if(node != null){
+            node.collectTerms(terms);
+        }
+
+        double[] scores = new double[docCount];
+        for(String term : terms){
+            Postings list = postings.get(term);
+            if(list == null){
+                continue;
+            }
+            double idf = Math.log(1 + (docCount - list.docs.length + 0.5) / (list.docs.length + 0.5));
+            for(int d=0; d<list.docs.length; d++){
+                int doc = list.docs[d];
+                if(matches.get(doc)){
+                    int tf = list.offsets[d + 1] - list.offsets[d];
+                    double norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                    scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+        }
+
+        Integer[] order = new Integer[matches.cardinality()];
+        int n = 0;
+        for(int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)){
+            order[n++] = i;
+        }
+        Arrays.sort(order, (doc1, doc2) -> Double.compare(scores[doc2], scores[doc1]));
+
+        int[] ranked = new int[order.length];
+        for(int i=0; i<order.length; i++){
+            ranked[i] = order[i];
+        }
+        return ranked;
+    }
+
+    private BitSet matchTerm(String term){
+        BitSet result = new BitSet(docCount);
+        Postings list = postings.get(term);
+        if(list != null){
+            for(int doc : list.docs){
+                result.set(doc);
+            }
+        }
+        return result;
+    }
+
+    private BitSet matchPhrase(List<String> terms, int minPosition){
+        if(terms.size() == 1 && minPosition == 0){
+            return matchTerm(terms.get(0));
+        }
+
+        BitSet result = new BitSet(docCount);
+        Postings[] lists = new Postings[terms.size()];
+        for(int t=0; t<lists.length; t++){
+            lists[t] = postings.get(terms.get(t));
+            if(lists[t] == null){
+                return result;
+            }
+        }
+
+        // Walk the documents of the first word and check the positions of the others at the expected offsets
+        int[] cursors = new int[lists.length];
+        DocLoop:
+        for(int d=0; d<lists[0].docs.length; d++){
+            int doc = lists[0].docs[d];
+            for(int t=1; t<lists.length; t++){
+                int[] docs = lists[t].docs;
+                while(cursors[t] < docs.length && docs[cursors[t]] < doc){
+                    cursors[t]++;
+                }
+                if(cursors[t] == docs.length){
+                    break DocLoop;
+                }
+                if(docs[cursors[t]] != doc){
+                    continue DocLoop;
+                }
+            }
+
+            PositionLoop:
+            for(int p = lists[0].offsets[d]; p < lists[0].offsets[d + 1]; p++){
+                int position = lists[0].positions[p];
+                if(position < minPosition){
+                    continue;
+                }
+                for(int t=1; t<lists.length; t++){
+                    Postings list = lists[t];
+                    int from = list.offsets[cursors[t]], to = list.offsets[cursors[t] + 1];
+                    if(Arrays.binarySearch(list.positions, from, to, position + t) < 0){
+                        continue PositionLoop;
+                    }
+                }
+                result.set(doc);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Documents, the positions of the term in each document, and where each document's positions start.
+     */
+    private static class Postings {
+        private final int[] docs, offsets, positions;
+
+        private Postings(int[] docs, int[] offsets, int[] positions){
+            this.docs = docs;
+            this.offsets = offsets;
+            this.positions = positions;
+        }
+    }
+
+    private static class PostingsBuilder {
+        private int[] docs = new int[4], offsets = new int[5], positions = new int[4];
+        private int docCount = 0, positionCount = 0;
+
+        private void add(int doc, int position){
+            if(docCount == 0 || docs[docCount - 1] != doc){
+                if(docCount == docs.length){
+                    docs = Arrays.copyOf(docs, docCount * 2);
+                    offsets = Arrays.copyOf(offsets, docCount * 2 + 1);
+                }
+                docs[docCount++] = doc;
+            }
+            if(positionCount == positions.length){
+                positions = Arrays.copyOf(positions, positionCount * 2);
+            }
+            positions[positionCount++] = position;
+            offsets[docCount] = positionCount;
+        }
+
+        private Postings build(){
+            return new Postings(Arrays.copyOf(docs, docCount), Arrays.copyOf(offsets, docCount + 1), Arrays.copyOf(positions, positionCount));
+        }
+    }
+
+    private abstract class Node {
+        abstract BitSet match();
+
+        /**
+         * Adds the words that count towards the ranking, excluded words don't.
+         */
+        abstract void collectTerms(List<String> terms);
+    }
+
+    private class PhraseNode extends Node {
+        private final List<String> terms;
+
+        private PhraseNode(List<String> terms){
+            this.terms = terms;
+        }
+
+        BitSet match(){
+            return matchPhrase(terms, 0);
+        }
+
+        void collectTerms(List<String> terms){
+            terms.addAll(this.terms);
+        }
+    }
+
+    private class NotNode extends Node {
+        private final Node node;
+
+        private NotNode(Node node){
+            this.node = node;
+        }
+
+        BitSet match(){
+            BitSet result = new BitSet(docCount);
+            result.set(0, docCount);
+            result.andNot(node.match());
+            return result;
+        }
+
+        void collectTerms(List<String> terms){
+        }
+    }
+
+    private class BooleanNode extends Node {
+        private final boolean and;
+        private final List<Node> nodes;
+
+        private BooleanNode(boolean and, List<Node> nodes){
+            this.and = and;
+            this.nodes = nodes;
+        }
+
+        BitSet match(){
+            // Positive parts first so the exclusions are subtracted from a small set
+            BitSet result = null;
+            for(Node node : nodes){
+                if(and && node instanceof NotNode){
+                    continue;
+                }
+                BitSet bits = node.match();
+                if(result == null){
+                    result = bits;
+                }else if(and){
+                    result.and(bits);
+                }else{
+                    result.or(bits);
+                }
+            }
+            if(result == null){
+                result = new BitSet(docCount);
+                result.set(0, docCount);
+            }
+            for(Node node : nodes){
+                if(and && node instanceof NotNode){
+                    result.andNot(((NotNode) node).node.match());
+                }
+            }
+            return result;
+        }
+
+        void collectTerms(List<String> terms){
+            nodes.forEach(node -> node.collectTerms(terms));
+        }
+    }
+
+    /**
+     * or := and ('|' and)*, and := unary+, unary := '-' unary | '(' or ')' | '"' words '"' | word
+     */
+    private class QueryParser {
+        private final String query;
+        private int pos = 0;
+
+        private QueryParser(String query){
+            this.query = query;
+        }
+
+        private Node parse(){
+            Node node = parseOr();
+            while(pos < query.length()){
+                // Stray closing parenthesis, skip it and keep going
+                pos++;
+                Node rest = parseOr();
+                if(rest != null){
+                    node = node == null ? rest : new BooleanNode(true, new ArrayList<>(Arrays.asList(node, rest)));
+                }
+            }
+            return node;
+        }
+
+        private Node parseOr(){
+            ArrayList<Node> nodes = new ArrayList<>();
+            Node node = parseAnd();
+            if(node != null){
+                nodes.add(node);
+            }
+            while(peek() == '|'){
+                pos++;
+                node = parseAnd();
+                if(node != null){
+                    nodes.add(node);
+                }
+            }
+            return nodes.isEmpty() ? null : nodes.size() == 1 ? nodes.get(0) : new BooleanNode(false, nodes);
+        }
+
+        private Node parseAnd(){
+            ArrayList<Node> nodes = new ArrayList<>();
+            while(true){
+                char c = peek();
+                if(c == 0 || c == '|' || c == ')'){
+                    break;
+                }
+                Node node = parseUnary();
+                if(node != null){
+                    nodes.add(node);
+                }
+            }
+            return nodes.isEmpty() ? null : nodes.size() == 1 ? nodes.get(0) : new BooleanNode(true, nodes);
+        }
+
+        private Node parseUnary(){
+            char c = peek();
+            if(c == '-' && pos + 1 < query.length() && (Character.isLetter(query.charAt(pos + 1)) || query.charAt(pos + 1) == '"' || query.charAt(pos + 1) == '(')){
+                pos++;
+                Node node = parseUnary();
+                return node == null ? null : new NotNode(node);
+            }else if(c == '('){
+                pos++;
+                Node node = parseOr();
+                if(peek() == ')'){
+                    pos++;
+                }
+                return node;
+            }else if(c == '"'){
+                int end = query.indexOf('"', pos + 1);
+                if(end < 0){
+                    end = query.length();
+                }
+                ArrayList<String> terms = new ArrayList<>();
+                tokenize(query.substring(pos + 1, end), terms);
+                pos = Math.min(end + 1, query.length());
+                return terms.isEmpty() ? null : new PhraseNode(terms);
+            }
+
+            int start = pos;
+            while(pos < query.length() && isWordChar(query.charAt(pos))){
+                pos++;
+            }
+            if(pos == start){
+                // Punctuation that isn't part of a word
+                pos++;
+                return null;
+            }
+            ArrayList<String> terms = new ArrayList<>();
+            tokenize(query.substring(start, pos), terms);
+            return new PhraseNode(terms);
+        }
+
+        private char peek(){
+            while(pos < query.length() && Character.isWhitespace(query.charAt(pos))){
+                pos++;
+            }
+            return pos < query.length() ? query.charAt(pos) : 0;
+        }
+    }
+}